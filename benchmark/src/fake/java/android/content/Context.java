@@ -0,0 +1,26 @@
+package android.content;
+
+import java.io.File;
+
+/**
+ * context whose directories are temporary directories
+ */
+public class Context {
+    private final File dir;
+
+    public Context(File dir) {
+        this.dir = dir;
+    }
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public File getCacheDir() {
+        return new File(dir, "cache");
+    }
+
+    public File getFilesDir() {
+        return new File(dir, "files");
+    }
+}
@@ -0,0 +1,17 @@
+package android.content.res;
+
+import android.util.DisplayMetrics;
+
+public class Resources {
+    private static final Resources SYSTEM = new Resources();
+
+    private final DisplayMetrics displayMetrics = new DisplayMetrics();
+
+    public static Resources getSystem() {
+        return SYSTEM;
+    }
+
+    public DisplayMetrics getDisplayMetrics() {
+        return displayMetrics;
+    }
+}
@@ -0,0 +1,64 @@
+package android.graphics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * pixel buffer without encoding, compress writes the raw pixels
+ */
+public final class Bitmap {
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+
+    private Bitmap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
+    }
+
+    public static Bitmap createBitmap(int width, int height, Config config) {
+        return new Bitmap(width, height);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getByteCount() {
+        return pixels.length * 4;
+    }
+
+    public void setPixels(int[] pixels, int offset, int stride, int x, int y, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(pixels, offset + row * stride, this.pixels, (y + row) * this.width + x, width);
+        }
+    }
+
+    public boolean compress(CompressFormat format, int quality, OutputStream stream) {
+        try {
+            for (int pixel : pixels) {
+                stream.write(pixel >>> 24);
+            }
+
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public void recycle() {
+    }
+
+    public enum Config {
+        ALPHA_8, RGB_565, ARGB_8888
+    }
+
+    public enum CompressFormat {
+        JPEG, PNG, WEBP
+    }
+}
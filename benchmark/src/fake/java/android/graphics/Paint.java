@@ -0,0 +1,42 @@
+package android.graphics;
+
+/**
+ * paint with fixed font metrics
+ */
+public class Paint {
+    public static final int ANTI_ALIAS_FLAG = 1;
+
+    private float textSize = 12;
+
+    public Paint(int flags) {
+    }
+
+    public void setColor(int color) {
+    }
+
+    public void setFakeBoldText(boolean fakeBoldText) {
+    }
+
+    public void setTextAlign(Align align) {
+    }
+
+    public void setTextSize(float textSize) {
+        this.textSize = textSize;
+    }
+
+    public float measureText(String text) {
+        return text.length() * textSize * 0.6f;
+    }
+
+    public float ascent() {
+        return -textSize * 0.9f;
+    }
+
+    public float descent() {
+        return textSize * 0.25f;
+    }
+
+    public enum Align {
+        LEFT, CENTER, RIGHT
+    }
+}
@@ -0,0 +1,201 @@
+package android.location;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+public class Address {
+    private final Locale locale;
+    private final ArrayList<String> addressLines = new ArrayList<>();
+    private double latitude;
+    private double longitude;
+    private boolean hasLatitude;
+    private boolean hasLongitude;
+    private String featureName;
+    private String adminArea;
+    private String subAdminArea;
+    private String locality;
+    private String subLocality;
+    private String thoroughfare;
+    private String subThoroughfare;
+    private String premises;
+    private String postalCode;
+    private String countryCode;
+    private String countryName;
+    private String phone;
+    private String url;
+
+    public Address(Locale locale) {
+        this.locale = locale;
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    public boolean hasLatitude() {
+        return hasLatitude;
+    }
+
+    public double getLatitude() {
+        if (!hasLatitude) {
+            throw new IllegalStateException();
+        }
+
+        return latitude;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+        hasLatitude = true;
+    }
+
+    public void clearLatitude() {
+        hasLatitude = false;
+    }
+
+    public boolean hasLongitude() {
+        return hasLongitude;
+    }
+
+    public double getLongitude() {
+        if (!hasLongitude) {
+            throw new IllegalStateException();
+        }
+
+        return longitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+        hasLongitude = true;
+    }
+
+    public void clearLongitude() {
+        hasLongitude = false;
+    }
+
+    public String getFeatureName() {
+        return featureName;
+    }
+
+    public void setFeatureName(String featureName) {
+        this.featureName = featureName;
+    }
+
+    public String getAdminArea() {
+        return adminArea;
+    }
+
+    public void setAdminArea(String adminArea) {
+        this.adminArea = adminArea;
+    }
+
+    public String getSubAdminArea() {
+        return subAdminArea;
+    }
+
+    public void setSubAdminArea(String subAdminArea) {
+        this.subAdminArea = subAdminArea;
+    }
+
+    public String getLocality() {
+        return locality;
+    }
+
+    public void setLocality(String locality) {
+        this.locality = locality;
+    }
+
+    public String getSubLocality() {
+        return subLocality;
+    }
+
+    public void setSubLocality(String subLocality) {
+        this.subLocality = subLocality;
+    }
+
+    public String getThoroughfare() {
+        return thoroughfare;
+    }
+
+    public void setThoroughfare(String thoroughfare) {
+        this.thoroughfare = thoroughfare;
+    }
+
+    public String getSubThoroughfare() {
+        return subThoroughfare;
+    }
+
+    public void setSubThoroughfare(String subThoroughfare) {
+        this.subThoroughfare = subThoroughfare;
+    }
+
+    public String getPremises() {
+        return premises;
+    }
+
+    public void setPremises(String premises) {
+        this.premises = premises;
+    }
+
+    public String getPostalCode() {
+        return postalCode;
+    }
+
+    public void setPostalCode(String postalCode) {
+        this.postalCode = postalCode;
+    }
+
+    public String getCountryCode() {
+        return countryCode;
+    }
+
+    public void setCountryCode(String countryCode) {
+        this.countryCode = countryCode;
+    }
+
+    public String getCountryName() {
+        return countryName;
+    }
+
+    public void setCountryName(String countryName) {
+        this.countryName = countryName;
+    }
+
+    public String getPhone() {
+        return phone;
+    }
+
+    public void setPhone(String phone) {
+        this.phone = phone;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public int getMaxAddressLineIndex() {
+        return addressLines.size() - 1;
+    }
+
+    public String getAddressLine(int index) {
+        return index < addressLines.size() ? addressLines.get(index) : null;
+    }
+
+    public void setAddressLine(int index, String line) {
+        while (addressLines.size() <= index) {
+            addressLines.add(null);
+        }
+
+        addressLines.set(index, line);
+    }
+
+    @Override
+    public String toString() {
+        return "Address[featureName=" + featureName + ",locality=" + locality + ",latitude=" + latitude + ",longitude=" + longitude + "]";
+    }
+}
@@ -0,0 +1,42 @@
+package android.location;
+
+import android.content.Context;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * deterministic geocoder, every query resolves to a position derived from its hash
+ */
+public final class Geocoder {
+    public Geocoder(Context context) {
+    }
+
+    public List<Address> getFromLocationName(String locationName, int maxResults) throws IOException {
+        int hash = locationName.hashCode();
+        ArrayList<Address> addresses = new ArrayList<>(1);
+        Address address = new Address(Locale.ROOT);
+
+        address.setLatitude((hash & 0xffff) / 65536.0 * 170 - 85);
+        address.setLongitude((hash >>> 16) / 65536.0 * 360 - 180);
+        address.setFeatureName(locationName);
+        address.setAddressLine(0, locationName);
+        addresses.add(address);
+
+        return addresses;
+    }
+
+    public List<Address> getFromLocation(double latitude, double longitude, int maxResults) throws IOException {
+        ArrayList<Address> addresses = new ArrayList<>(1);
+        Address address = new Address(Locale.ROOT);
+
+        address.setLatitude(latitude);
+        address.setLongitude(longitude);
+        address.setAddressLine(0, latitude + "," + longitude);
+        addresses.add(address);
+
+        return addresses;
+    }
+}
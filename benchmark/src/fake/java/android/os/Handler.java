@@ -0,0 +1,29 @@
+package android.os;
+
+public class Handler {
+    private final Looper looper;
+
+    public Handler(Looper looper) {
+        this.looper = looper;
+    }
+
+    public final Looper getLooper() {
+        return looper;
+    }
+
+    public final boolean post(Runnable r) {
+        looper.enqueue(r);
+
+        return true;
+    }
+
+    public final boolean postDelayed(Runnable r, long delayMillis) {
+        looper.enqueueDelayed(r, delayMillis);
+
+        return true;
+    }
+
+    public final void removeCallbacks(Runnable r) {
+        looper.remove(r);
+    }
+}
@@ -0,0 +1,80 @@
+package android.os;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * main looper whose queue is drained explicitly by {@link #runPending()}
+ */
+public final class Looper {
+    private static final Looper MAIN = new Looper();
+
+    private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final ArrayList<Runnable> delayed = new ArrayList<>();
+    private final ArrayList<Long> delayedTimes = new ArrayList<>();
+
+    private Looper() {
+    }
+
+    public static Looper getMainLooper() {
+        return MAIN;
+    }
+
+    void enqueue(Runnable r) {
+        queue.add(r);
+    }
+
+    synchronized void enqueueDelayed(Runnable r, long delayMillis) {
+        delayed.add(r);
+        delayedTimes.add(System.nanoTime() + delayMillis * 1_000_000L);
+    }
+
+    synchronized void remove(Runnable r) {
+        queue.remove(r);
+
+        for (int i = delayed.size() - 1; i >= 0; i--) {
+            if (delayed.get(i) == r) {
+                delayed.remove(i);
+                delayedTimes.remove(i);
+            }
+        }
+    }
+
+    /**
+     * run the messages posted so far on the calling thread, delayed messages run once they're due
+     *
+     * @return the number of messages run
+     */
+    public int runPending() {
+        moveDueMessages();
+
+        int count = 0;
+
+        for (int i = queue.size(); i > 0; i--) {
+            Runnable r = queue.poll();
+
+            if (r == null) {
+                break;
+            }
+
+            r.run();
+
+            count++;
+        }
+
+        return count;
+    }
+
+    private synchronized void moveDueMessages() {
+        long now = System.nanoTime();
+
+        for (int i = 0; i < delayed.size(); ) {
+            if (delayedTimes.get(i) - now <= 0) {
+                queue.add(delayed.remove(i));
+                delayedTimes.remove(i);
+            } else {
+                i++;
+            }
+        }
+    }
+}
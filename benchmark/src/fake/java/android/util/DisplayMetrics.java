@@ -0,0 +1,7 @@
+package android.util;
+
+public class DisplayMetrics {
+    public float density = 2.625f;
+    public int widthPixels = 1080;
+    public int heightPixels = 1920;
+}
@@ -0,0 +1,71 @@
+package android.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class LruCache<K, V> {
+    private final LinkedHashMap<K, V> map = new LinkedHashMap<>(0, 0.75f, true);
+    private final int maxSize;
+    private int size;
+
+    public LruCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public final synchronized V get(K key) {
+        return map.get(key);
+    }
+
+    public final synchronized V put(K key, V value) {
+        V previous = map.put(key, value);
+
+        size += sizeOf(key, value);
+
+        if (previous != null) {
+            size -= sizeOf(key, previous);
+        }
+
+        trimToSize(maxSize);
+
+        return previous;
+    }
+
+    public final synchronized V remove(K key) {
+        V previous = map.remove(key);
+
+        if (previous != null) {
+            size -= sizeOf(key, previous);
+        }
+
+        return previous;
+    }
+
+    public final synchronized void evictAll() {
+        trimToSize(-1);
+    }
+
+    public final synchronized int size() {
+        return size;
+    }
+
+    public final int maxSize() {
+        return maxSize;
+    }
+
+    public synchronized void trimToSize(int maxSize) {
+        Iterator<Map.Entry<K, V>> iterator = map.entrySet().iterator();
+
+        while (size > maxSize && iterator.hasNext()) {
+            Map.Entry<K, V> eldest = iterator.next();
+
+            size -= sizeOf(eldest.getKey(), eldest.getValue());
+
+            iterator.remove();
+        }
+    }
+
+    protected int sizeOf(K key, V value) {
+        return 1;
+    }
+}
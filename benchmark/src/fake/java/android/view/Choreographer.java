@@ -0,0 +1,59 @@
+package android.view;
+
+import java.util.ArrayList;
+
+/**
+ * choreographer whose frames are run explicitly by {@link #doFrame(long)}
+ */
+public final class Choreographer {
+    private static final ThreadLocal<Choreographer> INSTANCE = ThreadLocal.withInitial(Choreographer::new);
+
+    private ArrayList<FrameCallback> callbacks = new ArrayList<>();
+    private ArrayList<FrameCallback> running = new ArrayList<>();
+
+    private Choreographer() {
+    }
+
+    public static Choreographer getInstance() {
+        return INSTANCE.get();
+    }
+
+    public void postFrameCallback(FrameCallback callback) {
+        callbacks.add(callback);
+    }
+
+    public void removeFrameCallback(FrameCallback callback) {
+        while (callbacks.remove(callback)) {
+        }
+    }
+
+    /**
+     * run the callbacks posted before this frame, callbacks posted while running wait for the
+     * next frame
+     *
+     * @param frameTimeNanos
+     * @return false if there was nothing to run
+     */
+    public boolean doFrame(long frameTimeNanos) {
+        if (callbacks.isEmpty()) {
+            return false;
+        }
+
+        ArrayList<FrameCallback> frame = callbacks;
+
+        callbacks = running;
+        running = frame;
+
+        for (FrameCallback callback : frame) {
+            callback.doFrame(frameTimeNanos);
+        }
+
+        frame.clear();
+
+        return true;
+    }
+
+    public interface FrameCallback {
+        void doFrame(long frameTimeNanos);
+    }
+}
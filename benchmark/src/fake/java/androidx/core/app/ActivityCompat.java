@@ -0,0 +1,10 @@
+package androidx.core.app;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+
+public class ActivityCompat {
+    public static int checkSelfPermission(Context context, String permission) {
+        return PackageManager.PERMISSION_GRANTED;
+    }
+}
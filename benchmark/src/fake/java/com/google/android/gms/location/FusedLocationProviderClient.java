@@ -0,0 +1,41 @@
+package com.google.android.gms.location;
+
+import android.os.Looper;
+
+/**
+ * in-memory provider, results are only delivered by {@link #deliver(LocationResult)}
+ */
+public class FusedLocationProviderClient {
+    private LocationCallback callback;
+    private LocationRequest request;
+
+    public Object requestLocationUpdates(LocationRequest request, LocationCallback callback, Looper looper) {
+        this.request = request;
+        this.callback = callback;
+
+        return null;
+    }
+
+    public Object removeLocationUpdates(LocationCallback callback) {
+        if (this.callback == callback) {
+            this.callback = null;
+        }
+
+        return null;
+    }
+
+    public LocationRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * deliver result to the registered callback
+     *
+     * @param result
+     */
+    public void deliver(LocationResult result) {
+        if (callback != null) {
+            callback.onLocationResult(result);
+        }
+    }
+}
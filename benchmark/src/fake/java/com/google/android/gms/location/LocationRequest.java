@@ -0,0 +1,79 @@
+package com.google.android.gms.location;
+
+public final class LocationRequest {
+    public static final int PRIORITY_HIGH_ACCURACY = 100;
+    public static final int PRIORITY_BALANCED_POWER_ACCURACY = 102;
+    public static final int PRIORITY_LOW_POWER = 104;
+    public static final int PRIORITY_NO_POWER = 105;
+
+    private long interval = 3600000;
+    private long fastestInterval = 600000;
+    private long maxWaitTime;
+    private int priority = PRIORITY_BALANCED_POWER_ACCURACY;
+    private int numUpdates = Integer.MAX_VALUE;
+    private float smallestDisplacement;
+
+    public static LocationRequest create() {
+        return new LocationRequest();
+    }
+
+    public LocationRequest setInterval(long interval) {
+        this.interval = interval;
+
+        return this;
+    }
+
+    public LocationRequest setFastestInterval(long fastestInterval) {
+        this.fastestInterval = fastestInterval;
+
+        return this;
+    }
+
+    public LocationRequest setMaxWaitTime(long maxWaitTime) {
+        this.maxWaitTime = maxWaitTime;
+
+        return this;
+    }
+
+    public LocationRequest setPriority(int priority) {
+        this.priority = priority;
+
+        return this;
+    }
+
+    public LocationRequest setNumUpdates(int numUpdates) {
+        this.numUpdates = numUpdates;
+
+        return this;
+    }
+
+    public LocationRequest setSmallestDisplacement(float smallestDisplacement) {
+        this.smallestDisplacement = smallestDisplacement;
+
+        return this;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public long getFastestInterval() {
+        return fastestInterval;
+    }
+
+    public long getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public int getNumUpdates() {
+        return numUpdates;
+    }
+
+    public float getSmallestDisplacement() {
+        return smallestDisplacement;
+    }
+}
@@ -0,0 +1,30 @@
+package com.google.android.gms.location;
+
+import android.content.Context;
+
+import java.util.WeakHashMap;
+
+public final class LocationServices {
+    private static final WeakHashMap<Context, FusedLocationProviderClient> CLIENTS = new WeakHashMap<>();
+
+    private LocationServices() {
+    }
+
+    /**
+     * return the provider of the context, the same one is returned for every call
+     *
+     * @param context
+     * @return
+     */
+    public static synchronized FusedLocationProviderClient getFusedLocationProviderClient(Context context) {
+        FusedLocationProviderClient client = CLIENTS.get(context);
+
+        if (client == null) {
+            client = new FusedLocationProviderClient();
+
+            CLIENTS.put(context, client);
+        }
+
+        return client;
+    }
+}
@@ -0,0 +1,27 @@
+package com.google.android.gms.maps;
+
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+
+public final class CameraUpdate {
+    private final LatLng target;
+    private final float zoom;
+    private final LatLngBounds bounds;
+    private final int padding;
+
+    CameraUpdate(LatLng target, float zoom, LatLngBounds bounds, int padding) {
+        this.target = target;
+        this.zoom = zoom;
+        this.bounds = bounds;
+        this.padding = padding;
+    }
+
+    CameraPosition apply(CameraPosition position, Projection projection) {
+        if (bounds != null) {
+            return new CameraPosition(bounds.getCenter(), projection.zoomToFit(bounds, padding), position.tilt, position.bearing);
+        }
+
+        return new CameraPosition(target, Float.isNaN(zoom) ? position.zoom : zoom, position.tilt, position.bearing);
+    }
+}
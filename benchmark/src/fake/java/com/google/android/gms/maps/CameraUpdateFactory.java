@@ -0,0 +1,21 @@
+package com.google.android.gms.maps;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+
+public final class CameraUpdateFactory {
+    private CameraUpdateFactory() {
+    }
+
+    public static CameraUpdate newLatLng(LatLng latLng) {
+        return new CameraUpdate(latLng, Float.NaN, null, 0);
+    }
+
+    public static CameraUpdate newLatLngZoom(LatLng latLng, float zoom) {
+        return new CameraUpdate(latLng, zoom, null, 0);
+    }
+
+    public static CameraUpdate newLatLngBounds(LatLngBounds bounds, int padding) {
+        return new CameraUpdate(null, Float.NaN, bounds, padding);
+    }
+}
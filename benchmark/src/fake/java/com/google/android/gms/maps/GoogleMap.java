@@ -0,0 +1,256 @@
+package com.google.android.gms.maps;
+
+import android.view.View;
+
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.Polygon;
+import com.google.android.gms.maps.model.PolygonOptions;
+import com.google.android.gms.maps.model.Polyline;
+import com.google.android.gms.maps.model.PolylineOptions;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileOverlayOptions;
+
+/**
+ * headless map which records the calls made to it, camera changes are applied immediately and
+ * followed by the idle event
+ */
+public final class GoogleMap {
+    public static final int MAP_TYPE_NONE = 0;
+    public static final int MAP_TYPE_NORMAL = 1;
+
+    private final Projection projection = new Projection(this);
+    private CameraPosition cameraPosition = new CameraPosition(new LatLng(0, 0), 2, 0, 0);
+    private OnCameraIdleListener onCameraIdleListener;
+    private OnCameraMoveStartedListener onCameraMoveStartedListener;
+    private int mapType = MAP_TYPE_NORMAL;
+    private int nextId;
+    private int liveMarkers;
+    private long callCount;
+
+    /**
+     * return the number of calls made to the map and its objects
+     *
+     * @return
+     */
+    public long getCallCount() {
+        return callCount;
+    }
+
+    /**
+     * return the number of markers on the map
+     *
+     * @return
+     */
+    public int getMarkerCount() {
+        return liveMarkers;
+    }
+
+    public void resetCallCount() {
+        callCount = 0;
+    }
+
+    public void recordCall() {
+        callCount++;
+    }
+
+    public void markerRemoved(Marker marker) {
+        liveMarkers--;
+    }
+
+    public int getMapType() {
+        recordCall();
+
+        return mapType;
+    }
+
+    public void setMapType(int mapType) {
+        recordCall();
+
+        this.mapType = mapType;
+    }
+
+    public void setMyLocationEnabled(boolean enabled) {
+        recordCall();
+    }
+
+    public void setTrafficEnabled(boolean enabled) {
+        recordCall();
+    }
+
+    public boolean setIndoorEnabled(boolean enabled) {
+        recordCall();
+
+        return enabled;
+    }
+
+    public CameraPosition getCameraPosition() {
+        recordCall();
+
+        return cameraPosition;
+    }
+
+    public Projection getProjection() {
+        recordCall();
+
+        return projection;
+    }
+
+    public void moveCamera(CameraUpdate update) {
+        recordCall();
+
+        applyCamera(update);
+    }
+
+    public void animateCamera(CameraUpdate update) {
+        animateCamera(update, null);
+    }
+
+    public void animateCamera(CameraUpdate update, CancelableCallback callback) {
+        recordCall();
+
+        applyCamera(update);
+
+        if (callback != null) {
+            callback.onFinish();
+        }
+    }
+
+    public void stopAnimation() {
+        recordCall();
+    }
+
+    public Marker addMarker(MarkerOptions opts) {
+        recordCall();
+
+        liveMarkers++;
+
+        return new Marker(this, "m" + nextId++, opts);
+    }
+
+    public Polyline addPolyline(PolylineOptions opts) {
+        recordCall();
+
+        return new Polyline(this, opts);
+    }
+
+    public Polygon addPolygon(PolygonOptions opts) {
+        recordCall();
+
+        return new Polygon(this, opts);
+    }
+
+    public TileOverlay addTileOverlay(TileOverlayOptions opts) {
+        recordCall();
+
+        return new TileOverlay(this, opts);
+    }
+
+    public void clear() {
+        recordCall();
+
+        liveMarkers = 0;
+    }
+
+    public void setInfoWindowAdapter(InfoWindowAdapter adapter) {
+        recordCall();
+    }
+
+    public void setOnCameraIdleListener(OnCameraIdleListener listener) {
+        recordCall();
+
+        onCameraIdleListener = listener;
+    }
+
+    public void setOnCameraMoveStartedListener(OnCameraMoveStartedListener listener) {
+        recordCall();
+
+        onCameraMoveStartedListener = listener;
+    }
+
+    public void setOnMapClickListener(OnMapClickListener listener) {
+        recordCall();
+    }
+
+    public void setOnMapLongClickListener(OnMapLongClickListener listener) {
+        recordCall();
+    }
+
+    public void setOnMarkerClickListener(OnMarkerClickListener listener) {
+        recordCall();
+    }
+
+    public void setOnInfoWindowClickListener(OnInfoWindowClickListener listener) {
+        recordCall();
+    }
+
+    public void setOnMarkerDragListener(OnMarkerDragListener listener) {
+        recordCall();
+    }
+
+    CameraPosition camera() {
+        return cameraPosition;
+    }
+
+    private void applyCamera(CameraUpdate update) {
+        if (onCameraMoveStartedListener != null) {
+            onCameraMoveStartedListener.onCameraMoveStarted(OnCameraMoveStartedListener.REASON_DEVELOPER_ANIMATION);
+        }
+
+        cameraPosition = update.apply(cameraPosition, projection);
+
+        if (onCameraIdleListener != null) {
+            onCameraIdleListener.onCameraIdle();
+        }
+    }
+
+    public interface CancelableCallback {
+        void onFinish();
+
+        void onCancel();
+    }
+
+    public interface InfoWindowAdapter {
+        View getInfoWindow(Marker marker);
+
+        View getInfoContents(Marker marker);
+    }
+
+    public interface OnCameraIdleListener {
+        void onCameraIdle();
+    }
+
+    public interface OnCameraMoveStartedListener {
+        int REASON_GESTURE = 1;
+        int REASON_API_ANIMATION = 2;
+        int REASON_DEVELOPER_ANIMATION = 3;
+
+        void onCameraMoveStarted(int reason);
+    }
+
+    public interface OnMapClickListener {
+        void onMapClick(LatLng latLng);
+    }
+
+    public interface OnMapLongClickListener {
+        void onMapLongClick(LatLng latLng);
+    }
+
+    public interface OnMarkerClickListener {
+        boolean onMarkerClick(Marker marker);
+    }
+
+    public interface OnInfoWindowClickListener {
+        void onInfoWindowClick(Marker marker);
+    }
+
+    public interface OnMarkerDragListener {
+        void onMarkerDragStart(Marker marker);
+
+        void onMarkerDrag(Marker marker);
+
+        void onMarkerDragEnd(Marker marker);
+    }
+}
@@ -0,0 +1,20 @@
+package com.google.android.gms.maps;
+
+import android.content.Context;
+
+public class MapView {
+    private final Context context;
+    private final GoogleMap map = new GoogleMap();
+
+    public MapView(Context context) {
+        this.context = context;
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public void getMapAsync(OnMapReadyCallback callback) {
+        callback.onMapReady(map);
+    }
+}
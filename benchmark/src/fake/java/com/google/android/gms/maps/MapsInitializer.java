@@ -0,0 +1,12 @@
+package com.google.android.gms.maps;
+
+import android.content.Context;
+
+public final class MapsInitializer {
+    private MapsInitializer() {
+    }
+
+    public static int initialize(Context context) {
+        return 0;
+    }
+}
@@ -0,0 +1,51 @@
+package com.google.android.gms.maps;
+
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.VisibleRegion;
+
+/**
+ * projection of a 1080x1920 pixels viewport, latitude is treated as linear which is close enough
+ * for benchmarks
+ */
+public final class Projection {
+    static final int WIDTH = 1080;
+    static final int HEIGHT = 1920;
+
+    private final GoogleMap map;
+
+    Projection(GoogleMap map) {
+        this.map = map;
+    }
+
+    public VisibleRegion getVisibleRegion() {
+        CameraPosition position = map.camera();
+        double degreesPerPixel = 360 / (256 * Math.pow(2, position.zoom));
+        double halfWidth = Math.min(180, WIDTH * degreesPerPixel / 2);
+        double halfHeight = Math.min(90, HEIGHT * degreesPerPixel / 2);
+        LatLng target = position.target;
+        LatLng southwest = new LatLng(Math.max(-90, target.latitude - halfHeight), target.longitude - halfWidth);
+        LatLng northeast = new LatLng(Math.min(90, target.latitude + halfHeight), target.longitude + halfWidth);
+
+        return new VisibleRegion(southwest, new LatLng(southwest.latitude, northeast.longitude),
+                new LatLng(northeast.latitude, southwest.longitude), northeast, new LatLngBounds(southwest, northeast));
+    }
+
+    /**
+     * return the zoom at which the bounds fit the viewport
+     */
+    float zoomToFit(LatLngBounds bounds, int padding) {
+        double width = bounds.northeast.longitude - bounds.southwest.longitude;
+        double height = bounds.northeast.latitude - bounds.southwest.latitude;
+
+        if (width < 0) {
+            width += 360;
+        }
+
+        double zoomX = Math.log(360.0 * (WIDTH - 2 * padding) / 256 / Math.max(width, 1e-9)) / Math.log(2);
+        double zoomY = Math.log(360.0 * (HEIGHT - 2 * padding) / 256 / Math.max(height, 1e-9)) / Math.log(2);
+
+        return (float) Math.max(0, Math.min(21, Math.min(zoomX, zoomY)));
+    }
+}
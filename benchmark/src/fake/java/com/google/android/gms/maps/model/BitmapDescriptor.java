@@ -0,0 +1,4 @@
+package com.google.android.gms.maps.model;
+
+public final class BitmapDescriptor {
+}
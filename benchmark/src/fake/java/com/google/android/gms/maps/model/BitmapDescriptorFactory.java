@@ -0,0 +1,18 @@
+package com.google.android.gms.maps.model;
+
+import android.graphics.Bitmap;
+
+public final class BitmapDescriptorFactory {
+    private static final BitmapDescriptor DEFAULT_MARKER = new BitmapDescriptor();
+
+    private BitmapDescriptorFactory() {
+    }
+
+    public static BitmapDescriptor fromBitmap(Bitmap bitmap) {
+        return new BitmapDescriptor();
+    }
+
+    public static BitmapDescriptor defaultMarker() {
+        return DEFAULT_MARKER;
+    }
+}
@@ -0,0 +1,33 @@
+package com.google.android.gms.maps.model;
+
+public final class LatLng {
+    public final double latitude;
+    public final double longitude;
+
+    public LatLng(double latitude, double longitude) {
+        this.latitude = Math.max(-90, Math.min(90, latitude));
+        this.longitude = longitude >= -180 && longitude < 180 ? longitude : ((longitude - 180) % 360 + 360) % 360 - 180;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof LatLng)) {
+            return false;
+        }
+
+        LatLng other = (LatLng) o;
+
+        return Double.doubleToLongBits(latitude) == Double.doubleToLongBits(other.latitude)
+                && Double.doubleToLongBits(longitude) == Double.doubleToLongBits(other.longitude);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(latitude) + Double.hashCode(longitude);
+    }
+
+    @Override
+    public String toString() {
+        return "lat/lng: (" + latitude + "," + longitude + ")";
+    }
+}
@@ -0,0 +1,55 @@
+package com.google.android.gms.maps.model;
+
+public final class LatLngBounds {
+    public final LatLng southwest;
+    public final LatLng northeast;
+
+    public LatLngBounds(LatLng southwest, LatLng northeast) {
+        this.southwest = southwest;
+        this.northeast = northeast;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean contains(LatLng point) {
+        if (point.latitude < southwest.latitude || point.latitude > northeast.latitude) {
+            return false;
+        }
+
+        if (southwest.longitude <= northeast.longitude) {
+            return point.longitude >= southwest.longitude && point.longitude <= northeast.longitude;
+        }
+
+        return point.longitude >= southwest.longitude || point.longitude <= northeast.longitude;
+    }
+
+    public LatLng getCenter() {
+        return new LatLng((southwest.latitude + northeast.latitude) / 2, (southwest.longitude + northeast.longitude) / 2);
+    }
+
+    public static final class Builder {
+        private double south = Double.POSITIVE_INFINITY;
+        private double north = Double.NEGATIVE_INFINITY;
+        private double west = Double.POSITIVE_INFINITY;
+        private double east = Double.NEGATIVE_INFINITY;
+
+        public Builder include(LatLng point) {
+            south = Math.min(south, point.latitude);
+            north = Math.max(north, point.latitude);
+            west = Math.min(west, point.longitude);
+            east = Math.max(east, point.longitude);
+
+            return this;
+        }
+
+        public LatLngBounds build() {
+            if (south > north) {
+                throw new IllegalStateException("no included points");
+            }
+
+            return new LatLngBounds(new LatLng(south, west), new LatLng(north, east));
+        }
+    }
+}
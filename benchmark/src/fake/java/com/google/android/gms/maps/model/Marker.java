@@ -0,0 +1,160 @@
+package com.google.android.gms.maps.model;
+
+import com.google.android.gms.maps.GoogleMap;
+
+/**
+ * in-memory marker, every mutation is counted by the owning map
+ */
+public final class Marker {
+    private final GoogleMap map;
+    private final String id;
+    private LatLng position;
+    private String title;
+    private String snippet;
+    private Object tag;
+    private boolean visible;
+    private float alpha;
+    private float rotation;
+    private float zIndex;
+    private boolean draggable;
+    private boolean flat;
+    private boolean removed;
+
+    public Marker(GoogleMap map, String id, MarkerOptions opts) {
+        this.map = map;
+        this.id = id;
+        this.position = opts.getPosition();
+        this.title = opts.getTitle();
+        this.snippet = opts.getSnippet();
+        this.visible = opts.isVisible();
+        this.alpha = opts.getAlpha();
+        this.rotation = opts.getRotation();
+        this.zIndex = opts.getZIndex();
+        this.draggable = opts.isDraggable();
+        this.flat = opts.isFlat();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void remove() {
+        if (!removed) {
+            removed = true;
+
+            map.markerRemoved(this);
+        }
+
+        map.recordCall();
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    public LatLng getPosition() {
+        return position;
+    }
+
+    public void setPosition(LatLng position) {
+        this.position = position;
+
+        map.recordCall();
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+
+        map.recordCall();
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+
+        map.recordCall();
+    }
+
+    public void setIcon(BitmapDescriptor icon) {
+        map.recordCall();
+    }
+
+    public void setAnchor(float u, float v) {
+        map.recordCall();
+    }
+
+    public Object getTag() {
+        return tag;
+    }
+
+    public void setTag(Object tag) {
+        this.tag = tag;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+
+        map.recordCall();
+    }
+
+    public float getAlpha() {
+        return alpha;
+    }
+
+    public void setAlpha(float alpha) {
+        this.alpha = alpha;
+
+        map.recordCall();
+    }
+
+    public float getRotation() {
+        return rotation;
+    }
+
+    public void setRotation(float rotation) {
+        this.rotation = rotation;
+
+        map.recordCall();
+    }
+
+    public float getZIndex() {
+        return zIndex;
+    }
+
+    public void setZIndex(float zIndex) {
+        this.zIndex = zIndex;
+
+        map.recordCall();
+    }
+
+    public boolean isDraggable() {
+        return draggable;
+    }
+
+    public void setDraggable(boolean draggable) {
+        this.draggable = draggable;
+
+        map.recordCall();
+    }
+
+    public boolean isFlat() {
+        return flat;
+    }
+
+    public void setFlat(boolean flat) {
+        this.flat = flat;
+
+        map.recordCall();
+    }
+}
@@ -0,0 +1,148 @@
+package com.google.android.gms.maps.model;
+
+public final class MarkerOptions {
+    private LatLng position;
+    private String title;
+    private String snippet;
+    private BitmapDescriptor icon;
+    private float anchorU = 0.5f;
+    private float anchorV = 1;
+    private float infoWindowAnchorU = 0.5f;
+    private float infoWindowAnchorV;
+    private float zIndex;
+    private float alpha = 1;
+    private float rotation;
+    private boolean draggable;
+    private boolean flat;
+    private boolean visible = true;
+
+    public MarkerOptions position(LatLng position) {
+        this.position = position;
+
+        return this;
+    }
+
+    public MarkerOptions title(String title) {
+        this.title = title;
+
+        return this;
+    }
+
+    public MarkerOptions snippet(String snippet) {
+        this.snippet = snippet;
+
+        return this;
+    }
+
+    public MarkerOptions icon(BitmapDescriptor icon) {
+        this.icon = icon;
+
+        return this;
+    }
+
+    public MarkerOptions anchor(float u, float v) {
+        this.anchorU = u;
+        this.anchorV = v;
+
+        return this;
+    }
+
+    public MarkerOptions infoWindowAnchor(float u, float v) {
+        this.infoWindowAnchorU = u;
+        this.infoWindowAnchorV = v;
+
+        return this;
+    }
+
+    public MarkerOptions zIndex(float zIndex) {
+        this.zIndex = zIndex;
+
+        return this;
+    }
+
+    public MarkerOptions alpha(float alpha) {
+        this.alpha = alpha;
+
+        return this;
+    }
+
+    public MarkerOptions rotation(float rotation) {
+        this.rotation = rotation;
+
+        return this;
+    }
+
+    public MarkerOptions draggable(boolean draggable) {
+        this.draggable = draggable;
+
+        return this;
+    }
+
+    public MarkerOptions visible(boolean visible) {
+        this.visible = visible;
+
+        return this;
+    }
+
+    public LatLng getPosition() {
+        return position;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public BitmapDescriptor getIcon() {
+        return icon;
+    }
+
+    public float getAnchorU() {
+        return anchorU;
+    }
+
+    public float getAnchorV() {
+        return anchorV;
+    }
+
+    public float getInfoWindowAnchorU() {
+        return infoWindowAnchorU;
+    }
+
+    public float getInfoWindowAnchorV() {
+        return infoWindowAnchorV;
+    }
+
+    public float getZIndex() {
+        return zIndex;
+    }
+
+    public float getAlpha() {
+        return alpha;
+    }
+
+    public float getRotation() {
+        return rotation;
+    }
+
+    public MarkerOptions flat(boolean flat) {
+        this.flat = flat;
+
+        return this;
+    }
+
+    public boolean isFlat() {
+        return flat;
+    }
+
+    public boolean isDraggable() {
+        return draggable;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+}
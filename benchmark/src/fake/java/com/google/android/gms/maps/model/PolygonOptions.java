@@ -0,0 +1,70 @@
+package com.google.android.gms.maps.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class PolygonOptions {
+    private final ArrayList<LatLng> points = new ArrayList<>();
+    private int fillColor;
+    private int strokeColor = 0xff000000;
+    private float strokeWidth = 10;
+    private float zIndex;
+
+    public PolygonOptions add(LatLng point) {
+        points.add(point);
+
+        return this;
+    }
+
+    public PolygonOptions addAll(Iterable<LatLng> points) {
+        for (LatLng point : points) {
+            this.points.add(point);
+        }
+
+        return this;
+    }
+
+    public PolygonOptions fillColor(int fillColor) {
+        this.fillColor = fillColor;
+
+        return this;
+    }
+
+    public PolygonOptions strokeColor(int strokeColor) {
+        this.strokeColor = strokeColor;
+
+        return this;
+    }
+
+    public PolygonOptions strokeWidth(float strokeWidth) {
+        this.strokeWidth = strokeWidth;
+
+        return this;
+    }
+
+    public PolygonOptions zIndex(float zIndex) {
+        this.zIndex = zIndex;
+
+        return this;
+    }
+
+    public List<LatLng> getPoints() {
+        return points;
+    }
+
+    public int getFillColor() {
+        return fillColor;
+    }
+
+    public int getStrokeColor() {
+        return strokeColor;
+    }
+
+    public float getStrokeWidth() {
+        return strokeWidth;
+    }
+
+    public float getZIndex() {
+        return zIndex;
+    }
+}
@@ -0,0 +1,41 @@
+package com.google.android.gms.maps.model;
+
+import com.google.android.gms.maps.GoogleMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class Polyline {
+    private final GoogleMap map;
+    private List<LatLng> points;
+    private boolean visible = true;
+
+    public Polyline(GoogleMap map, PolylineOptions opts) {
+        this.map = map;
+        this.points = new ArrayList<>(opts.getPoints());
+    }
+
+    public List<LatLng> getPoints() {
+        return points;
+    }
+
+    public void setPoints(List<LatLng> points) {
+        this.points = new ArrayList<>(points);
+
+        map.recordCall();
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+
+        map.recordCall();
+    }
+
+    public void remove() {
+        map.recordCall();
+    }
+}
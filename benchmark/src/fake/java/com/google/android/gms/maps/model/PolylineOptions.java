@@ -0,0 +1,70 @@
+package com.google.android.gms.maps.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class PolylineOptions {
+    private final ArrayList<LatLng> points = new ArrayList<>();
+    private int color = 0xff000000;
+    private float width = 10;
+    private float zIndex;
+    private boolean geodesic;
+
+    public PolylineOptions add(LatLng point) {
+        points.add(point);
+
+        return this;
+    }
+
+    public PolylineOptions addAll(Iterable<LatLng> points) {
+        for (LatLng point : points) {
+            this.points.add(point);
+        }
+
+        return this;
+    }
+
+    public PolylineOptions color(int color) {
+        this.color = color;
+
+        return this;
+    }
+
+    public PolylineOptions width(float width) {
+        this.width = width;
+
+        return this;
+    }
+
+    public PolylineOptions zIndex(float zIndex) {
+        this.zIndex = zIndex;
+
+        return this;
+    }
+
+    public PolylineOptions geodesic(boolean geodesic) {
+        this.geodesic = geodesic;
+
+        return this;
+    }
+
+    public List<LatLng> getPoints() {
+        return points;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public float getWidth() {
+        return width;
+    }
+
+    public float getZIndex() {
+        return zIndex;
+    }
+
+    public boolean isGeodesic() {
+        return geodesic;
+    }
+}
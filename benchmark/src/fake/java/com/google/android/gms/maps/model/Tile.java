@@ -0,0 +1,13 @@
+package com.google.android.gms.maps.model;
+
+public final class Tile {
+    public final int width;
+    public final int height;
+    public final byte[] data;
+
+    public Tile(int width, int height, byte[] data) {
+        this.width = width;
+        this.height = height;
+        this.data = data;
+    }
+}
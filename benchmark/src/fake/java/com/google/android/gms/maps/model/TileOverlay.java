@@ -0,0 +1,25 @@
+package com.google.android.gms.maps.model;
+
+import com.google.android.gms.maps.GoogleMap;
+
+public final class TileOverlay {
+    private final GoogleMap map;
+    private final TileProvider tileProvider;
+
+    public TileOverlay(GoogleMap map, TileOverlayOptions opts) {
+        this.map = map;
+        this.tileProvider = opts.getTileProvider();
+    }
+
+    public TileProvider getTileProvider() {
+        return tileProvider;
+    }
+
+    public void clearTileCache() {
+        map.recordCall();
+    }
+
+    public void remove() {
+        map.recordCall();
+    }
+}
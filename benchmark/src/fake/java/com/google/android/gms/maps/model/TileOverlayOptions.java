@@ -0,0 +1,48 @@
+package com.google.android.gms.maps.model;
+
+public final class TileOverlayOptions {
+    private TileProvider tileProvider;
+    private float zIndex;
+    private boolean fadeIn = true;
+    private float transparency;
+
+    public TileOverlayOptions tileProvider(TileProvider tileProvider) {
+        this.tileProvider = tileProvider;
+
+        return this;
+    }
+
+    public TileOverlayOptions zIndex(float zIndex) {
+        this.zIndex = zIndex;
+
+        return this;
+    }
+
+    public TileOverlayOptions fadeIn(boolean fadeIn) {
+        this.fadeIn = fadeIn;
+
+        return this;
+    }
+
+    public TileOverlayOptions transparency(float transparency) {
+        this.transparency = transparency;
+
+        return this;
+    }
+
+    public TileProvider getTileProvider() {
+        return tileProvider;
+    }
+
+    public float getZIndex() {
+        return zIndex;
+    }
+
+    public boolean getFadeIn() {
+        return fadeIn;
+    }
+
+    public float getTransparency() {
+        return transparency;
+    }
+}
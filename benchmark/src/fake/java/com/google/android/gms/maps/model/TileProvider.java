@@ -0,0 +1,7 @@
+package com.google.android.gms.maps.model;
+
+public interface TileProvider {
+    Tile NO_TILE = new Tile(-1, -1, null);
+
+    Tile getTile(int x, int y, int zoom);
+}
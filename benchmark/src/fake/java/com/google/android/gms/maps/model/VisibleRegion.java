@@ -0,0 +1,17 @@
+package com.google.android.gms.maps.model;
+
+public final class VisibleRegion {
+    public final LatLng nearLeft;
+    public final LatLng nearRight;
+    public final LatLng farLeft;
+    public final LatLng farRight;
+    public final LatLngBounds latLngBounds;
+
+    public VisibleRegion(LatLng nearLeft, LatLng nearRight, LatLng farLeft, LatLng farRight, LatLngBounds latLngBounds) {
+        this.nearLeft = nearLeft;
+        this.nearRight = nearRight;
+        this.farLeft = farLeft;
+        this.farRight = farRight;
+        this.latLngBounds = latLngBounds;
+    }
+}
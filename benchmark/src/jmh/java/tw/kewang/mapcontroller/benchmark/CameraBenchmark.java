@@ -0,0 +1,37 @@
+package tw.kewang.mapcontroller.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * burst of camera calls within one frame, they're coalesced into one map call
+ *
+ * @author kewang
+ */
+@State(Scope.Thread)
+public class CameraBenchmark {
+    @Param({"1", "10"})
+    public int burst;
+
+    private final MapState state = new MapState();
+    private int next;
+
+    @Setup
+    public void setUp() {
+        state.setUp();
+    }
+
+    @Benchmark
+    public void animateTo() {
+        for (int i = 0; i < burst; i++) {
+            int step = next++ & 1023;
+
+            state.controller.animateTo(25 + step * 1e-4, 121 + step * 1e-4);
+        }
+
+        state.runFrame();
+    }
+}
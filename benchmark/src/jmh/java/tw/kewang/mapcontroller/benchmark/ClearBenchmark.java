@@ -0,0 +1,43 @@
+package tw.kewang.mapcontroller.benchmark;
+
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+
+/**
+ * clearing markers, the map is filled before each invocation
+ *
+ * @author kewang
+ */
+@State(Scope.Thread)
+public class ClearBenchmark {
+    @Param({"1000", "10000"})
+    public int count;
+
+    private final MapState state = new MapState();
+    private ArrayList<MarkerOptions> allOpts;
+
+    @Setup
+    public void setUp() {
+        state.setUp();
+
+        allOpts = MapState.createOptions(count, 1);
+    }
+
+    @Setup(Level.Invocation)
+    public void fill() {
+        state.controller.addMarkers(allOpts);
+    }
+
+    @Benchmark
+    public void clearMarkers() {
+        state.controller.clearMarkers();
+    }
+}
@@ -0,0 +1,59 @@
+package tw.kewang.mapcontroller.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import tw.kewang.mapcontroller.MapController;
+
+/**
+ * geocoding through the cache and the find callback, the geocoder resolves queries without I/O
+ *
+ * @author kewang
+ */
+@State(Scope.Thread)
+public class FindBenchmark {
+    private static final int QUERIES = 64;
+
+    private final MapState state = new MapState();
+    private final String[] queries = new String[QUERIES];
+    private MapController.FindResult callback;
+    private Object found;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        state.setUp();
+
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = "Taipei 101 #" + i;
+        }
+
+        callback = (map, addresses) -> found = addresses;
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        state.controller.clearMarkers();
+        state.controller.getGeocodeCache().clear();
+    }
+
+    /**
+     * the queries fit in the cache, so after the first round every lookup is a hit
+     */
+    @Benchmark
+    public void findCached() {
+        state.controller.find(queries[next++ & (QUERIES - 1)], callback);
+    }
+
+    /**
+     * every query is new, so every lookup goes to the geocoder and is written to the cache
+     */
+    @Benchmark
+    public void findUncached() {
+        state.controller.find("Taipei 101 #" + next++, callback);
+    }
+
+}
@@ -0,0 +1,43 @@
+package tw.kewang.mapcontroller.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * find without a callback, the results are added as markers and the camera animates to the first
+ * one, the markers of the previous invocation are cleared before each invocation
+ *
+ * @author kewang
+ */
+@State(Scope.Thread)
+public class FindToMarkersBenchmark {
+    private static final int QUERIES = 64;
+
+    private final MapState state = new MapState();
+    private final String[] queries = new String[QUERIES];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        state.setUp();
+
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = "Taipei 101 #" + i;
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clear() {
+        state.controller.clearMarkers();
+    }
+
+    @Benchmark
+    public void findToMarkers() {
+        state.controller.find(queries[next++ & (QUERIES - 1)]);
+
+        state.runFrame();
+    }
+}
@@ -0,0 +1,59 @@
+package tw.kewang.mapcontroller.benchmark;
+
+import android.content.Context;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+
+import tw.kewang.mapcontroller.GeocodeCache;
+import tw.kewang.mapcontroller.MapController;
+
+/**
+ * controller attached to a headless recording map, each benchmark owns one instead of having it
+ * injected, JMH creates a separate instance for every method it's injected into, so a setup
+ * method and the benchmark method would see different maps
+ *
+ * @author kewang
+ */
+public class MapState {
+    public GoogleMap map;
+    public Context context;
+    public MapController controller;
+    private long frameTime;
+
+    public void setUp() {
+        map = new GoogleMap();
+        context = new Context(new File(System.getProperty("java.io.tmpdir"), "mapcontroller-benchmark"));
+        controller = new MapController(context, map);
+
+        controller.setGeocodeCache(new GeocodeCache(null, 256, Long.MAX_VALUE));
+    }
+
+    /**
+     * run pending main thread messages and one frame
+     */
+    public void runFrame() {
+        Looper.getMainLooper().runPending();
+        Choreographer.getInstance().doFrame(frameTime += 16_666_667L);
+    }
+
+    static ArrayList<MarkerOptions> createOptions(int count, long seed) {
+        Random random = new Random(seed);
+        ArrayList<MarkerOptions> allOpts = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            allOpts.add(new MarkerOptions()
+                    .position(new LatLng(25 + random.nextDouble(), 121 + random.nextDouble()))
+                    .title("Marker " + i));
+        }
+
+        return allOpts;
+    }
+}
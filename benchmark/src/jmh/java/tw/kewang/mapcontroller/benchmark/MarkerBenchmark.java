@@ -0,0 +1,56 @@
+package tw.kewang.mapcontroller.benchmark;
+
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+
+/**
+ * adding markers, the map is cleared before each invocation
+ *
+ * @author kewang
+ */
+@State(Scope.Thread)
+public class MarkerBenchmark {
+    private static final int BATCH = 1000;
+
+    @Param({"1000", "10000"})
+    public int count;
+
+    private final MapState state = new MapState();
+    private ArrayList<MarkerOptions> allOpts;
+    private ArrayList<MarkerOptions> batch;
+
+    @Setup
+    public void setUp() {
+        state.setUp();
+
+        allOpts = MapState.createOptions(count, 1);
+        batch = MapState.createOptions(BATCH, 2);
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        state.controller.clearMarkers();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void addMarker() {
+        for (int i = 0; i < BATCH; i++) {
+            state.controller.addMarker(batch.get(i));
+        }
+    }
+
+    @Benchmark
+    public void addMarkers() {
+        state.controller.addMarkers(allOpts);
+    }
+}
@@ -0,0 +1,71 @@
+package tw.kewang.mapcontroller.benchmark;
+
+import android.location.Location;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+
+import tw.kewang.mapcontroller.MapController;
+
+/**
+ * location callback delivering one fix, followed by the frame which applies the camera update
+ *
+ * @author kewang
+ */
+@State(Scope.Thread)
+public class TrackingBenchmark {
+    private static final int FIXES = 1024;
+
+    @Param({"regular", "adaptive"})
+    public String mode;
+
+    private final MapState state = new MapState();
+    private FusedLocationProviderClient client;
+    private LocationResult[] results;
+    private Location changed;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        state.setUp();
+
+        MapController.ChangeMyLocation callback = (map, location) -> changed = location;
+
+        if ("adaptive".equals(mode)) {
+            state.controller.startTrackMyLocationAdaptive(MapController.TrackType.TRACK_TYPE_ANIMATE, callback);
+        } else {
+            state.controller.startTrackMyLocation(callback);
+        }
+
+        client = LocationServices.getFusedLocationProviderClient(state.context);
+        results = new LocationResult[FIXES];
+
+        // a walk along a straight line, one fix per second
+        for (int i = 0; i < FIXES; i++) {
+            Location location = new Location("fused");
+
+            location.setLatitude(25 + i * 1e-5);
+            location.setLongitude(121 + i * 1e-5);
+            location.setTime(i * 1000L);
+            location.setAccuracy(5);
+
+            results[i] = LocationResult.create(Collections.singletonList(location));
+        }
+    }
+
+    @Benchmark
+    public void onLocationResult() {
+        client.deliver(results[next++ & (FIXES - 1)]);
+
+        state.runFrame();
+    }
+}
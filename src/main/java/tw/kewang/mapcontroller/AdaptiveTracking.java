@@ -0,0 +1,153 @@
+package tw.kewang.mapcontroller;
+
+import android.location.Location;
+
+import com.google.android.gms.location.LocationRequest;
+
+/**
+ * pick location request parameters from the observed speed and whether the app is in the
+ * foreground, and drop fixes which didn't move far enough
+ *
+ * @author kewang
+ */
+public class AdaptiveTracking {
+    public static final int TIER_STILL = 0;
+    public static final int TIER_WALKING = 1;
+    public static final int TIER_DRIVING = 2;
+
+    private static final float WALKING_SPEED = 0.5f;
+    private static final float DRIVING_SPEED = 3f;
+    private static final long[] INTERVALS = {30000, 5000, 2000};
+    private static final float[] DISPLACEMENTS = {10, 5, 10};
+    private static final int BACKGROUND_FACTOR = 3;
+
+    private boolean foreground = true;
+    private float minDisplacement = 5;
+    private int tier = TIER_WALKING;
+    private boolean hasLast;
+    private double lastLat;
+    private double lastLng;
+    private long lastTime;
+    private int droppedCount;
+
+    /**
+     * set whether the app is in the foreground, return true if the request should be updated
+     *
+     * @param foreground
+     * @return
+     */
+    public boolean setForeground(boolean foreground) {
+        boolean changed = this.foreground != foreground;
+
+        this.foreground = foreground;
+
+        return changed;
+    }
+
+    public boolean isForeground() {
+        return foreground;
+    }
+
+    /**
+     * set the distance in meters a fix must move from the last accepted fix
+     *
+     * @param minDisplacement
+     */
+    public void setMinDisplacement(float minDisplacement) {
+        this.minDisplacement = minDisplacement;
+    }
+
+    public int getTier() {
+        return tier;
+    }
+
+    /**
+     * return the number of fixes dropped by the movement threshold
+     *
+     * @return
+     */
+    public int getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * build the location request for the current tier
+     *
+     * @return
+     */
+    public LocationRequest createRequest() {
+        long interval = INTERVALS[tier] * (foreground ? 1 : BACKGROUND_FACTOR);
+        int priority;
+
+        if (!foreground) {
+            priority = LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY;
+        } else if (tier == TIER_STILL) {
+            priority = LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY;
+        } else {
+            priority = LocationRequest.PRIORITY_HIGH_ACCURACY;
+        }
+
+        return LocationRequest.create()
+                .setInterval(interval)
+                .setFastestInterval(interval / 2)
+                .setPriority(priority)
+                .setSmallestDisplacement(DISPLACEMENTS[tier]);
+    }
+
+    /**
+     * update the tier from the fix, and return true if the fix moved far enough and should be
+     * delivered
+     *
+     * @param location
+     * @return
+     */
+    public boolean accept(Location location) {
+        double lat = location.getLatitude();
+        double lng = location.getLongitude();
+        long time = location.getTime();
+
+        if (!hasLast) {
+            hasLast = true;
+            lastLat = lat;
+            lastLng = lng;
+            lastTime = time;
+
+            return true;
+        }
+
+        double distance = SpatialIndex.distance(lastLat, lastLng, lat, lng);
+        // measured from the last delivered fix, so the speed of a device which stopped decays
+        // towards zero even though its fixes are dropped
+        float speed = location.hasSpeed() ? location.getSpeed() : time > lastTime ? (float) (distance * 1000 / (time - lastTime)) : 0;
+
+        tier = speed < WALKING_SPEED ? TIER_STILL : speed < DRIVING_SPEED ? TIER_WALKING : TIER_DRIVING;
+
+        if (distance < minDisplacement) {
+            droppedCount++;
+
+            return false;
+        }
+
+        lastLat = lat;
+        lastLng = lng;
+        lastTime = time;
+
+        return true;
+    }
+
+    /**
+     * return true if the tier changed since the request was created
+     *
+     * @param requestTier
+     * @return
+     */
+    boolean tierChanged(int requestTier) {
+        return tier != requestTier;
+    }
+
+    void reset() {
+        hasLast = false;
+        tier = TIER_WALKING;
+        droppedCount = 0;
+    }
+}
@@ -0,0 +1,185 @@
+package tw.kewang.mapcontroller;
+
+import android.view.Choreographer;
+
+import com.google.android.gms.maps.CameraUpdate;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.CameraPosition;
+
+import java.util.ArrayList;
+
+/**
+ * coalesce camera updates issued within one frame into the latest one, callbacks of superseded
+ * updates are queued and invoked when the camera reaches the final target
+ *
+ * @author kewang
+ */
+final class CameraScheduler implements Choreographer.FrameCallback {
+    private final GoogleMap map;
+    private CameraUpdate pendingUpdate;
+    private boolean pendingAnimate;
+    private int pendingOperation;
+    private ArrayList<MapController.ChangePosition> pendingCallbacks = new ArrayList<>();
+    private ArrayList<MapController.ChangePosition> activeCallbacks = new ArrayList<>();
+    private boolean framePosted;
+    private boolean waitingForIdle;
+    private int generation;
+    private MetricsSink metrics;
+    private long scheduledNanos;
+    private boolean settlingAnimate;
+
+    CameraScheduler(GoogleMap map) {
+        this.map = map;
+    }
+
+    void setMetrics(MetricsSink metrics) {
+        this.metrics = metrics;
+        this.scheduledNanos = 0;
+    }
+
+    /**
+     * schedule camera update for the next frame
+     *
+     * @param update
+     * @param animate
+     * @param callback
+     */
+    void schedule(CameraUpdate update, boolean animate, MapController.ChangePosition callback) {
+        schedule(update, animate, animate ? MetricsSink.OP_ANIMATE_TO : MetricsSink.OP_MOVE_TO, callback);
+    }
+
+    /**
+     * schedule camera update for the next frame, the camera call is counted under the operation
+     * of the latest coalesced update
+     *
+     * @param update
+     * @param animate
+     * @param operation
+     * @param callback
+     */
+    void schedule(CameraUpdate update, boolean animate, int operation, MapController.ChangePosition callback) {
+        if (metrics != null) {
+            if (pendingUpdate != null) {
+                metrics.count(MetricsSink.COUNT_COALESCED_CAMERA_UPDATES, 1);
+            }
+
+            if (scheduledNanos == 0) {
+                scheduledNanos = System.nanoTime();
+            }
+        }
+
+        pendingUpdate = update;
+        pendingAnimate = animate;
+        pendingOperation = operation;
+
+        if (callback != null) {
+            pendingCallbacks.add(callback);
+        }
+
+        if (!framePosted) {
+            framePosted = true;
+
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        framePosted = false;
+
+        CameraUpdate update = pendingUpdate;
+
+        if (update == null) {
+            return;
+        }
+
+        pendingUpdate = null;
+
+        // callbacks of an animation in flight are superseded by this update
+        activeCallbacks.addAll(pendingCallbacks);
+        pendingCallbacks.clear();
+
+        final int token = ++generation;
+
+        settlingAnimate = pendingAnimate;
+
+        if (metrics != null) {
+            metrics.mapCalls(pendingOperation, 1);
+        }
+
+        if (pendingAnimate) {
+            waitingForIdle = false;
+
+            map.animateCamera(update, new GoogleMap.CancelableCallback() {
+                @Override
+                public void onFinish() {
+                    if (token == generation) {
+                        deliver();
+                    }
+                }
+
+                @Override
+                public void onCancel() {
+                    if (token == generation) {
+                        deliver();
+                    }
+                }
+            });
+        } else {
+            waitingForIdle = true;
+
+            map.moveCamera(update);
+        }
+    }
+
+    /**
+     * must be called when the camera is idle
+     */
+    void onCameraIdle() {
+        if (waitingForIdle) {
+            waitingForIdle = false;
+
+            deliver();
+        }
+    }
+
+    /**
+     * drop pending updates and callbacks
+     */
+    void cancel() {
+        generation++;
+        pendingUpdate = null;
+        waitingForIdle = false;
+        scheduledNanos = 0;
+
+        pendingCallbacks.clear();
+        activeCallbacks.clear();
+
+        if (framePosted) {
+            framePosted = false;
+
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    private void deliver() {
+        if (metrics != null && scheduledNanos != 0 && pendingUpdate == null) {
+            metrics.latency(settlingAnimate ? MetricsSink.LATENCY_ANIMATE_TO_IDLE : MetricsSink.LATENCY_MOVE_TO_IDLE, System.nanoTime() - scheduledNanos);
+
+            scheduledNanos = 0;
+        }
+
+        if (activeCallbacks.isEmpty()) {
+            return;
+        }
+
+        ArrayList<MapController.ChangePosition> callbacks = activeCallbacks;
+        CameraPosition position = map.getCameraPosition();
+
+        activeCallbacks = new ArrayList<>();
+
+        for (MapController.ChangePosition callback : callbacks) {
+            callback.changed(map, position);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package tw.kewang.mapcontroller;
+
+import java.util.ArrayList;
+
+/**
+ * minimal CSV line splitter, fields may be quoted and quotes are escaped by doubling them
+ *
+ * @author kewang
+ */
+final class Csv {
+    private Csv() {
+    }
+
+    static ArrayList<String> split(String line) {
+        ArrayList<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        fields.add(field.toString());
+
+        return fields;
+    }
+}
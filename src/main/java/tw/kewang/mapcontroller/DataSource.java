@@ -0,0 +1,30 @@
+package tw.kewang.mapcontroller;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * source of keyed markers loaded per slippy map tile, see
+ * {@link MapController#setDataSource(DataSource)}
+ *
+ * @author kewang
+ * @see InMemoryDataSource
+ */
+public interface DataSource {
+    /**
+     * load the markers inside the tile, it's called on a background thread which is interrupted
+     * when the tile is no longer needed, the bounds of the tile are given for sources queried by
+     * bounding box
+     *
+     * @param zoom
+     * @param x     grows to the east
+     * @param y     grows to the south
+     * @param south
+     * @param west
+     * @param north
+     * @param east
+     * @return
+     * @throws IOException
+     */
+    List<KeyedMarkerOptions> load(int zoom, int x, int y, double south, double west, double north, double east) throws IOException;
+}
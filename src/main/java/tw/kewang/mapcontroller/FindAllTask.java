@@ -0,0 +1,217 @@
+package tw.kewang.mapcontroller;
+
+import android.location.Address;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * handle of a bulk geocoding request, equivalent queries are looked up once, at most as many
+ * lookups as geocoding threads are submitted at a time, and a lookup which doesn't finish within
+ * the timeout after it starts running resolves to no addresses
+ *
+ * @author kewang
+ */
+public class FindAllTask {
+    static final int MAX_IN_FLIGHT = GeocodeExecutor.POOL_SIZE;
+    static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ArrayList<String> queries = new ArrayList<>();
+    private final ArrayList<String> keys = new ArrayList<>();
+    private final int[] slots;
+    private final ArrayList<ArrayList<Address>> results = new ArrayList<>();
+    private final FindTask[] tasks;
+    private final Runnable[] timeouts;
+    private final long timeoutMillis;
+    private final Resolver resolver;
+    private final Listener listener;
+    private int next;
+    private int completed;
+    private int rejected;
+    private boolean cancelled;
+    private boolean done;
+
+    FindAllTask(List<String> locations, long timeoutMillis, Resolver resolver, Listener listener) {
+        HashMap<String, Integer> unique = new HashMap<>();
+
+        slots = new int[locations.size()];
+
+        for (int i = 0; i < slots.length; i++) {
+            String location = locations.get(i);
+            String key = GeocodeCache.normalize(location);
+            Integer slot = unique.get(key);
+
+            if (slot == null) {
+                slot = keys.size();
+
+                unique.put(key, slot);
+                keys.add(key);
+                queries.add(location);
+                results.add(null);
+            }
+
+            slots[i] = slot;
+        }
+
+        this.tasks = new FindTask[keys.size()];
+        this.timeouts = new Runnable[keys.size()];
+        this.timeoutMillis = timeoutMillis;
+        this.resolver = resolver;
+        this.listener = listener;
+    }
+
+    /**
+     * must be called on the main thread
+     */
+    void start() {
+        if (keys.isEmpty()) {
+            mainHandler.post(this::finish);
+
+            return;
+        }
+
+        while (next < keys.size() && next < MAX_IN_FLIGHT) {
+            submitNext();
+        }
+    }
+
+    /**
+     * cancel the request, its callback won't be invoked
+     */
+    public void cancel() {
+        if (cancelled || done) {
+            return;
+        }
+
+        cancelled = true;
+
+        for (int i = 0; i < next; i++) {
+            if (results.get(i) == null) {
+                tasks[i].cancel();
+
+                mainHandler.removeCallbacks(timeouts[i]);
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * return true when the callback was invoked
+     *
+     * @return
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * return the number of distinct queries
+     *
+     * @return
+     */
+    public int getQueryCount() {
+        return keys.size();
+    }
+
+    /**
+     * return the number of distinct queries which are resolved, timed out or rejected
+     *
+     * @return
+     */
+    public int getCompletedCount() {
+        return completed;
+    }
+
+    /**
+     * return the number of distinct queries which have no addresses because their lookup was
+     * rejected, too many lookups were queued by other requests
+     *
+     * @return
+     */
+    public int getRejectedCount() {
+        return rejected;
+    }
+
+    private void submitNext() {
+        final int index = next++;
+        final String query = queries.get(index);
+
+        timeouts[index] = () -> {
+            tasks[index].cancel();
+
+            complete(index, new ArrayList<>());
+        };
+
+        // the timeout starts when the lookup runs, not while it's queued behind other lookups
+        tasks[index] = GeocodeExecutor.getInstance().submit(keys.get(index), () -> resolver.resolve(query), new GeocodeExecutor.Listener() {
+            @Override
+            public void done(ArrayList<Address> addresses) {
+                complete(index, addresses);
+            }
+
+            @Override
+            public void rejected() {
+                if (!cancelled) {
+                    rejected++;
+                }
+
+                complete(index, new ArrayList<>());
+            }
+        }, () -> startTimeout(index));
+    }
+
+    private void startTimeout(int index) {
+        if (!cancelled && results.get(index) == null) {
+            mainHandler.postDelayed(timeouts[index], timeoutMillis);
+        }
+    }
+
+    private void complete(int index, ArrayList<Address> addresses) {
+        if (cancelled || results.get(index) != null) {
+            return;
+        }
+
+        mainHandler.removeCallbacks(timeouts[index]);
+
+        results.set(index, addresses);
+
+        completed++;
+
+        if (next < keys.size()) {
+            submitNext();
+        } else if (completed == keys.size()) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        if (cancelled) {
+            return;
+        }
+
+        done = true;
+
+        ArrayList<ArrayList<Address>> ordered = new ArrayList<>(slots.length);
+
+        for (int slot : slots) {
+            ordered.add(results.get(slot));
+        }
+
+        listener.done(ordered);
+    }
+
+    interface Resolver {
+        ArrayList<Address> resolve(String location) throws Exception;
+    }
+
+    interface Listener {
+        void done(ArrayList<ArrayList<Address>> results);
+    }
+}
@@ -0,0 +1,84 @@
+package tw.kewang.mapcontroller;
+
+import android.location.Address;
+
+import java.util.ArrayList;
+
+/**
+ * handle of an asynchronous geocoding request
+ *
+ * @author kewang
+ */
+public class FindTask {
+    private final GeocodeExecutor executor;
+    final GeocodeExecutor.Lookup lookup;
+    private final GeocodeExecutor.Listener listener;
+    private final Runnable started;
+    private volatile boolean cancelled;
+    private boolean done;
+    private boolean rejected;
+
+    FindTask(GeocodeExecutor executor, GeocodeExecutor.Lookup lookup, GeocodeExecutor.Listener listener, Runnable started) {
+        this.executor = executor;
+        this.lookup = lookup;
+        this.listener = listener;
+        this.started = started;
+    }
+
+    /**
+     * cancel the request, its callback won't be invoked
+     */
+    public void cancel() {
+        if (!cancelled) {
+            cancelled = true;
+
+            executor.cancel(this);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * return true when the callback was invoked
+     *
+     * @return
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * return true when the request was rejected because too many lookups are queued, it can be
+     * retried later
+     *
+     * @return
+     */
+    public boolean isRejected() {
+        return rejected;
+    }
+
+    void start() {
+        if (!cancelled && !done && started != null) {
+            started.run();
+        }
+    }
+
+    void deliver(ArrayList<Address> addresses) {
+        if (!cancelled) {
+            done = true;
+
+            listener.done(addresses);
+        }
+    }
+
+    void reject() {
+        if (!cancelled) {
+            done = true;
+            rejected = true;
+
+            listener.rejected();
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package tw.kewang.mapcontroller;
+
+import android.location.Address;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * LRU geocoding cache with TTL, persisted to a compact file which is loaded lazily, addresses are
+ * persisted without their extras
+ *
+ * @author kewang
+ */
+public class GeocodeCache {
+    private static final String TAG = GeocodeCache.class.getSimpleName();
+    private static final int MAGIC = 0x4d434743;
+    private static final int VERSION = 2;
+    static final int DEFAULT_MAX_SIZE = 256;
+    static final long DEFAULT_TTL_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+    static final long EMPTY_TTL_MILLIS = 10 * 60 * 1000L;
+
+    private final File file;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> entries;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, TAG);
+
+        thread.setDaemon(true);
+
+        return thread;
+    });
+    private boolean loaded;
+    private boolean dirty;
+    private int hitCount;
+    private int missCount;
+
+    /**
+     * @param file      persistent file, or null to keep the cache in memory only
+     * @param maxSize
+     * @param ttlMillis
+     */
+    public GeocodeCache(File file, int maxSize, long ttlMillis) {
+        this.file = file;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GeocodeCache.Entry> eldest) {
+                return size() > GeocodeCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * normalize query so that equivalent queries share the same key
+     *
+     * @param query
+     * @return
+     */
+    public static String normalize(String query) {
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * return cached addresses, or null if missing or expired
+     *
+     * @param key
+     * @return
+     */
+    public synchronized ArrayList<Address> get(String key) {
+        ensureLoaded();
+
+        Entry entry = entries.get(key);
+
+        if (entry != null && isExpired(entry, System.currentTimeMillis())) {
+            entries.remove(key);
+
+            entry = null;
+        }
+
+        if (entry == null) {
+            missCount++;
+
+            return null;
+        }
+
+        hitCount++;
+
+        return new ArrayList<>(entry.addresses);
+    }
+
+    /**
+     * cache addresses
+     *
+     * @param key
+     * @param addresses
+     */
+    public synchronized void put(String key, ArrayList<Address> addresses) {
+        ensureLoaded();
+
+        entries.put(key, new Entry(System.currentTimeMillis(), new ArrayList<>(addresses)));
+
+        scheduleSave();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+
+        loaded = true;
+
+        scheduleSave();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+
+        loaded = true;
+
+        if (file == null || !file.exists()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+
+            for (int count = in.readInt(); count > 0; count--) {
+                String key = in.readUTF();
+                long time = in.readLong();
+                ArrayList<Address> addresses = readAddresses(in);
+
+                Entry entry = new Entry(time, addresses);
+
+                if (!isExpired(entry, now)) {
+                    entries.put(key, entry);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Can't load geocode cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * empty results expire after {@link #EMPTY_TTL_MILLIS}, so a failed or unlucky lookup doesn't
+     * hide a place for the whole TTL
+     */
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.time > (entry.addresses.isEmpty() ? Math.min(ttlMillis, EMPTY_TTL_MILLIS) : ttlMillis);
+    }
+
+    private void scheduleSave() {
+        if (file == null || dirty) {
+            return;
+        }
+
+        dirty = true;
+
+        writer.execute(this::save);
+    }
+
+    private void save() {
+        ArrayList<Map.Entry<String, Entry>> snapshot;
+
+        synchronized (this) {
+            dirty = false;
+            snapshot = new ArrayList<>(entries.entrySet());
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(snapshot.size());
+
+            for (Map.Entry<String, Entry> entry : snapshot) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().time);
+
+                writeAddresses(out, entry.getValue().addresses);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Can't save geocode cache: " + e.getMessage());
+
+            return;
+        }
+
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "Can't save geocode cache: " + file);
+        }
+    }
+
+    private static void writeAddresses(DataOutputStream out, ArrayList<Address> addresses) throws IOException {
+        out.writeShort(addresses.size());
+
+        for (Address address : addresses) {
+            int lines = address.getMaxAddressLineIndex() + 1;
+            Locale locale = address.getLocale();
+
+            out.writeUTF(locale != null ? locale.toLanguageTag() : "");
+            out.writeBoolean(address.hasLatitude());
+            out.writeDouble(address.hasLatitude() ? address.getLatitude() : 0);
+            out.writeBoolean(address.hasLongitude());
+            out.writeDouble(address.hasLongitude() ? address.getLongitude() : 0);
+            out.writeUTF(nonNull(address.getFeatureName()));
+            out.writeUTF(nonNull(address.getAdminArea()));
+            out.writeUTF(nonNull(address.getSubAdminArea()));
+            out.writeUTF(nonNull(address.getLocality()));
+            out.writeUTF(nonNull(address.getSubLocality()));
+            out.writeUTF(nonNull(address.getThoroughfare()));
+            out.writeUTF(nonNull(address.getSubThoroughfare()));
+            out.writeUTF(nonNull(address.getPremises()));
+            out.writeUTF(nonNull(address.getPostalCode()));
+            out.writeUTF(nonNull(address.getCountryCode()));
+            out.writeUTF(nonNull(address.getCountryName()));
+            out.writeUTF(nonNull(address.getPhone()));
+            out.writeUTF(nonNull(address.getUrl()));
+            out.writeShort(lines);
+
+            for (int i = 0; i < lines; i++) {
+                out.writeUTF(nonNull(address.getAddressLine(i)));
+            }
+        }
+    }
+
+    private static ArrayList<Address> readAddresses(DataInputStream in) throws IOException {
+        int count = in.readShort();
+        ArrayList<Address> addresses = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            String locale = in.readUTF();
+            Address address = new Address(locale.isEmpty() ? Locale.getDefault() : Locale.forLanguageTag(locale));
+            boolean hasLatitude = in.readBoolean();
+            double latitude = in.readDouble();
+            boolean hasLongitude = in.readBoolean();
+            double longitude = in.readDouble();
+
+            if (hasLatitude) {
+                address.setLatitude(latitude);
+            }
+
+            if (hasLongitude) {
+                address.setLongitude(longitude);
+            }
+
+            address.setFeatureName(nullable(in.readUTF()));
+            address.setAdminArea(nullable(in.readUTF()));
+            address.setSubAdminArea(nullable(in.readUTF()));
+            address.setLocality(nullable(in.readUTF()));
+            address.setSubLocality(nullable(in.readUTF()));
+            address.setThoroughfare(nullable(in.readUTF()));
+            address.setSubThoroughfare(nullable(in.readUTF()));
+            address.setPremises(nullable(in.readUTF()));
+            address.setPostalCode(nullable(in.readUTF()));
+            address.setCountryCode(nullable(in.readUTF()));
+            address.setCountryName(nullable(in.readUTF()));
+            address.setPhone(nullable(in.readUTF()));
+            address.setUrl(nullable(in.readUTF()));
+
+            for (int line = 0, lines = in.readShort(); line < lines; line++) {
+                address.setAddressLine(line, in.readUTF());
+            }
+
+            addresses.add(address);
+        }
+
+        return addresses;
+    }
+
+    private static String nonNull(String s) {
+        return s == null ? "" : s;
+    }
+
+    private static String nullable(String s) {
+        return s.isEmpty() ? null : s;
+    }
+
+    private static class Entry {
+        final long time;
+        final ArrayList<Address> addresses;
+
+        Entry(long time, ArrayList<Address> addresses) {
+            this.time = time;
+            this.addresses = addresses;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package tw.kewang.mapcontroller;
+
+import android.location.Address;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * run geocoding lookups on a small bounded pool, identical in-flight lookups are coalesced and
+ * results are delivered on the main thread
+ *
+ * @author kewang
+ */
+final class GeocodeExecutor {
+    private static final String TAG = GeocodeExecutor.class.getSimpleName();
+    static final int POOL_SIZE = 2;
+    private static final int QUEUE_SIZE = 32;
+    private static GeocodeExecutor instance;
+
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final HashMap<String, Lookup> inFlight = new HashMap<>();
+
+    private GeocodeExecutor() {
+        executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(QUEUE_SIZE), r -> {
+            Thread thread = new Thread(r, TAG);
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    static synchronized GeocodeExecutor getInstance() {
+        if (instance == null) {
+            instance = new GeocodeExecutor();
+        }
+
+        return instance;
+    }
+
+    /**
+     * submit lookup, a lookup with the same key still in flight is shared
+     *
+     * @param key
+     * @param lookup
+     * @param listener
+     * @return
+     */
+    FindTask submit(String key, Callable<ArrayList<Address>> lookup, Listener listener) {
+        return submit(key, lookup, listener, null);
+    }
+
+    /**
+     * submit lookup, started is invoked on the main thread when the lookup begins running, or at
+     * once when a shared lookup is already running
+     *
+     * @param key
+     * @param lookup
+     * @param listener
+     * @param started
+     * @return
+     */
+    synchronized FindTask submit(String key, Callable<ArrayList<Address>> lookup, Listener listener, Runnable started) {
+        Lookup pending = inFlight.get(key);
+
+        if (pending == null) {
+            Lookup created = new Lookup(key);
+
+            try {
+                created.future = executor.submit(() -> run(created, lookup));
+            } catch (RejectedExecutionException e) {
+                Log.e(TAG, "Too many geocoding lookups: " + key);
+
+                FindTask task = new FindTask(this, created, listener, started);
+
+                mainHandler.post(task::reject);
+
+                return task;
+            }
+
+            inFlight.put(key, created);
+
+            pending = created;
+        }
+
+        FindTask task = new FindTask(this, pending, listener, started);
+
+        pending.tasks.add(task);
+
+        if (pending.started && started != null) {
+            mainHandler.post(task::start);
+        }
+
+        return task;
+    }
+
+    synchronized void cancel(FindTask task) {
+        Lookup lookup = task.lookup;
+
+        lookup.tasks.remove(task);
+
+        if (lookup.tasks.isEmpty() && inFlight.get(lookup.key) == lookup) {
+            inFlight.remove(lookup.key);
+
+            lookup.future.cancel(true);
+        }
+    }
+
+    private void run(Lookup lookup, Callable<ArrayList<Address>> callable) {
+        ArrayList<FindTask> starting;
+
+        synchronized (this) {
+            lookup.started = true;
+
+            starting = new ArrayList<>(lookup.tasks);
+        }
+
+        mainHandler.post(() -> {
+            for (FindTask task : starting) {
+                task.start();
+            }
+        });
+
+        ArrayList<Address> addresses;
+
+        try {
+            addresses = callable.call();
+        } catch (Exception e) {
+            Log.e(TAG, String.valueOf(e.getMessage()));
+
+            addresses = new ArrayList<>();
+        }
+
+        ArrayList<FindTask> tasks;
+
+        synchronized (this) {
+            if (inFlight.get(lookup.key) == lookup) {
+                inFlight.remove(lookup.key);
+            }
+
+            tasks = new ArrayList<>(lookup.tasks);
+        }
+
+        ArrayList<Address> result = addresses;
+
+        mainHandler.post(() -> {
+            for (FindTask task : tasks) {
+                task.deliver(result);
+            }
+        });
+    }
+
+    interface Listener {
+        void done(ArrayList<Address> addresses);
+
+        /**
+         * called instead of done when the lookup is rejected because too many lookups are queued
+         */
+        default void rejected() {
+        }
+    }
+
+    static final class Lookup {
+        final String key;
+        final ArrayList<FindTask> tasks = new ArrayList<>();
+        Future<?> future;
+        boolean started;
+
+        Lookup(String key) {
+            this.key = key;
+        }
+    }
+}
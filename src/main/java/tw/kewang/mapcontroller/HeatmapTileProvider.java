@@ -0,0 +1,354 @@
+package tw.kewang.mapcontroller;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * render a density heatmap of primitive lat/lng arrays as tiles, points are sorted in Z-order so
+ * the points of any tile are a contiguous range
+ *
+ * @author kewang
+ */
+public class HeatmapTileProvider implements TileProvider {
+    private static final String TAG = HeatmapTileProvider.class.getSimpleName();
+    private static final int TILE_SIZE = 256;
+    private static final int LEVEL = 20;
+    private static final int INDEX_BITS = 23;
+    private static final int MAX_POINTS = 1 << INDEX_BITS;
+    static final int DEFAULT_RADIUS = 10;
+    static final int DEFAULT_CACHE_BYTES = 8 * 1024 * 1024;
+    private static final int[] GRADIENT = {0x0000ff00, 0xa000ff00, 0xc0ffff00, 0xe0ff8000, 0xffff0000};
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), r -> {
+        Thread thread = new Thread(r, TAG);
+
+        thread.setDaemon(true);
+
+        return thread;
+    });
+    private final LruCache<Long, byte[]> cache;
+    private final int radius;
+    private final float[] kernel;
+    private volatile Dataset dataset = new Dataset(new long[0], new double[0], new double[0]);
+    private volatile double maxIntensity = 10;
+    private TileOverlay overlay;
+    private int generation;
+
+    public HeatmapTileProvider() {
+        this(DEFAULT_RADIUS, DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * @param radius     blur radius in pixels
+     * @param cacheBytes maximum bytes of cached tiles
+     */
+    public HeatmapTileProvider(int radius, int cacheBytes) {
+        this.radius = radius;
+        this.kernel = createKernel(radius);
+        this.cache = new LruCache<Long, byte[]>(cacheBytes) {
+            @Override
+            protected int sizeOf(Long key, byte[] value) {
+                return value.length;
+            }
+        };
+    }
+
+    void setOverlay(TileOverlay overlay) {
+        this.overlay = overlay;
+    }
+
+    /**
+     * replace the dataset, the index is built on a background thread and the tiles are refreshed
+     * when it's ready, at most 8,388,608 points are supported
+     *
+     * @param lats
+     * @param lngs
+     * @param size
+     * @throws IllegalArgumentException if size is above the supported points
+     */
+    public void setData(double[] lats, double[] lngs, int size) {
+        if (size > MAX_POINTS) {
+            throw new IllegalArgumentException("Too many points: " + size + ", at most " + MAX_POINTS + " are supported");
+        }
+
+        if (workers.isShutdown()) {
+            return;
+        }
+
+        final int token = ++generation;
+
+        workers.execute(() -> {
+            Dataset built = build(lats, lngs, size);
+
+            mainHandler.post(() -> {
+                if (token != generation) {
+                    return;
+                }
+
+                dataset = built;
+
+                cache.evictAll();
+
+                if (overlay != null) {
+                    overlay.clearTileCache();
+                }
+            });
+        });
+    }
+
+    /**
+     * set the number of points per pixel that maps to the hottest color
+     *
+     * @param maxIntensity
+     */
+    public void setMaxIntensity(double maxIntensity) {
+        this.maxIntensity = maxIntensity;
+
+        cache.evictAll();
+
+        if (overlay != null) {
+            overlay.clearTileCache();
+        }
+    }
+
+    /**
+     * remove heatmap from map and release its workers
+     */
+    public void remove() {
+        if (overlay != null) {
+            overlay.remove();
+
+            overlay = null;
+        }
+
+        cache.evictAll();
+        workers.shutdownNow();
+    }
+
+    /**
+     * forget the overlay which GoogleMap#clear() already removed and release the workers
+     */
+    void onMapCleared() {
+        overlay = null;
+
+        cache.evictAll();
+        workers.shutdownNow();
+    }
+
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        long key = ((long) zoom << 48) | ((long) x << 24) | y;
+        byte[] data = cache.get(key);
+
+        if (data == null) {
+            Dataset current = dataset;
+
+            // tiles may still be requested after the heatmap is removed
+            if (current.codes.length == 0 || workers.isShutdown()) {
+                return NO_TILE;
+            }
+
+            Future<byte[]> future;
+
+            try {
+                future = workers.submit(() -> render(current, x, y, zoom));
+            } catch (RejectedExecutionException e) {
+                return NO_TILE;
+            }
+
+            try {
+                data = future.get();
+            } catch (InterruptedException e) {
+                future.cancel(true);
+
+                Thread.currentThread().interrupt();
+
+                return NO_TILE;
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Can't render tile: " + e.getMessage());
+
+                return NO_TILE;
+            }
+
+            if (current == dataset) {
+                cache.put(key, data);
+            }
+        }
+
+        return new Tile(TILE_SIZE, TILE_SIZE, data);
+    }
+
+    private byte[] render(Dataset dataset, int tileX, int tileY, int zoom) {
+        int padded = TILE_SIZE + 2 * radius;
+        float[] counts = new float[padded * padded];
+        double scale = Math.pow(2, zoom);
+        double pad = (double) radius / TILE_SIZE;
+        int level = Math.min(zoom, LEVEL);
+        double levelScale = Math.pow(2, level - zoom);
+        int minX = (int) Math.floor((tileX - pad) * levelScale);
+        int maxX = (int) Math.floor((tileX + 1 + pad) * levelScale);
+        int minY = (int) Math.floor((tileY - pad) * levelScale);
+        int maxY = (int) Math.floor((tileY + 1 + pad) * levelScale);
+        int levelSize = 1 << level;
+
+        for (int cellY = Math.max(0, minY); cellY <= Math.min(levelSize - 1, maxY); cellY++) {
+            for (int cellX = Math.max(0, minX); cellX <= Math.min(levelSize - 1, maxX); cellX++) {
+                long prefix = WebMercator.morton(cellX, cellY);
+                int shift = 2 * (LEVEL - level) + INDEX_BITS;
+                int from = lowerBound(dataset.codes, prefix << shift);
+                long end = prefix + 1;
+                int to = end >= 1L << (2 * level) ? dataset.codes.length : lowerBound(dataset.codes, end << shift);
+
+                for (int i = from; i < to; i++) {
+                    int px = (int) ((dataset.xs[i] * scale - tileX) * TILE_SIZE) + radius;
+                    int py = (int) ((dataset.ys[i] * scale - tileY) * TILE_SIZE) + radius;
+
+                    if (px >= 0 && px < padded && py >= 0 && py < padded) {
+                        counts[py * padded + px]++;
+                    }
+                }
+            }
+        }
+
+        float[] horizontal = new float[padded * TILE_SIZE];
+
+        for (int py = 0; py < padded; py++) {
+            for (int px = 0; px < TILE_SIZE; px++) {
+                float sum = 0;
+
+                for (int k = 0; k < kernel.length; k++) {
+                    sum += counts[py * padded + px + k] * kernel[k];
+                }
+
+                horizontal[py * TILE_SIZE + px] = sum;
+            }
+        }
+
+        int[] pixels = new int[TILE_SIZE * TILE_SIZE];
+        double max = Math.log1p(maxIntensity);
+
+        for (int py = 0; py < TILE_SIZE; py++) {
+            for (int px = 0; px < TILE_SIZE; px++) {
+                float sum = 0;
+
+                for (int k = 0; k < kernel.length; k++) {
+                    sum += horizontal[(py + k) * TILE_SIZE + px] * kernel[k];
+                }
+
+                pixels[py * TILE_SIZE + px] = sum > 0 ? colorize(Math.min(1, Math.log1p(sum) / max)) : 0;
+            }
+        }
+
+        Bitmap bitmap = Bitmap.createBitmap(TILE_SIZE, TILE_SIZE, Bitmap.Config.ARGB_8888);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        bitmap.setPixels(pixels, 0, TILE_SIZE, 0, 0, TILE_SIZE, TILE_SIZE);
+        bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        bitmap.recycle();
+
+        return out.toByteArray();
+    }
+
+    static Dataset build(double[] lats, double[] lngs, int size) {
+        long[] codes = new long[size];
+        int levelSize = 1 << LEVEL;
+
+        for (int i = 0; i < size; i++) {
+            double x = WebMercator.x(lngs[i]);
+            double y = WebMercator.y(lats[i]);
+            int cellX = Math.min(levelSize - 1, Math.max(0, (int) (x * levelSize)));
+            int cellY = Math.min(levelSize - 1, Math.max(0, (int) (y * levelSize)));
+
+            codes[i] = (WebMercator.morton(cellX, cellY) << INDEX_BITS) | i;
+        }
+
+        Arrays.sort(codes);
+
+        // float can't resolve a pixel beyond zoom 16 or so
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            int index = (int) (codes[i] & (MAX_POINTS - 1));
+
+            xs[i] = WebMercator.x(lngs[index]);
+            ys[i] = WebMercator.y(lats[index]);
+        }
+
+        return new Dataset(codes, xs, ys);
+    }
+
+    private static int lowerBound(long[] codes, long value) {
+        int low = 0;
+        int high = codes.length;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (codes[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    private static float[] createKernel(int radius) {
+        float[] kernel = new float[2 * radius + 1];
+        double sigma = radius / 3.0;
+
+        for (int i = -radius; i <= radius; i++) {
+            kernel[i + radius] = (float) Math.exp(-i * i / (2 * sigma * sigma));
+        }
+
+        return kernel;
+    }
+
+    private static int colorize(double t) {
+        double position = t * (GRADIENT.length - 1);
+        int index = Math.min(GRADIENT.length - 2, (int) position);
+        double f = position - index;
+        int from = GRADIENT[index];
+        int to = GRADIENT[index + 1];
+        int color = 0;
+
+        for (int shift = 0; shift <= 24; shift += 8) {
+            int a = (from >>> shift) & 0xff;
+            int b = (to >>> shift) & 0xff;
+
+            color |= ((int) (a + (b - a) * f) & 0xff) << shift;
+        }
+
+        return color;
+    }
+
+    static class Dataset {
+        final long[] codes;
+        final double[] xs;
+        final double[] ys;
+
+        Dataset(long[] codes, double[] xs, double[] ys) {
+            this.codes = codes;
+            this.xs = xs;
+            this.ys = ys;
+        }
+    }
+}
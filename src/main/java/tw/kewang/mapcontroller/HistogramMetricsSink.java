@@ -0,0 +1,134 @@
+package tw.kewang.mapcontroller;
+
+import java.util.Arrays;
+
+/**
+ * metrics sink keeping totals and log-linear latency histograms in preallocated arrays, each
+ * power of two is split into 8 buckets so percentiles are within 12.5%,
+ * it's thread safe
+ *
+ * @author kewang
+ */
+public class HistogramMetricsSink implements MetricsSink {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] mapCalls = new long[OP_COUNT];
+    private final long[] counters = new long[COUNTER_COUNT];
+    private final long[][] histograms = new long[LATENCY_COUNT][BUCKETS];
+    private final long[] latencyCounts = new long[LATENCY_COUNT];
+    private final long[] latencySums = new long[LATENCY_COUNT];
+    private final long[] latencyMaxes = new long[LATENCY_COUNT];
+
+    @Override
+    public synchronized void mapCalls(int operation, int calls) {
+        mapCalls[operation] += calls;
+    }
+
+    @Override
+    public synchronized void latency(int metric, long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        histograms[metric][bucketOf(nanos)]++;
+        latencyCounts[metric]++;
+        latencySums[metric] += nanos;
+
+        if (nanos > latencyMaxes[metric]) {
+            latencyMaxes[metric] = nanos;
+        }
+    }
+
+    @Override
+    public synchronized void count(int counter, int delta) {
+        counters[counter] += delta;
+    }
+
+    public synchronized long getMapCalls(int operation) {
+        return mapCalls[operation];
+    }
+
+    public synchronized long getCount(int counter) {
+        return counters[counter];
+    }
+
+    public synchronized long getLatencyCount(int metric) {
+        return latencyCounts[metric];
+    }
+
+    public synchronized long getLatencyMean(int metric) {
+        return latencyCounts[metric] == 0 ? 0 : latencySums[metric] / latencyCounts[metric];
+    }
+
+    public synchronized long getLatencyMax(int metric) {
+        return latencyMaxes[metric];
+    }
+
+    /**
+     * return the upper bound of the bucket holding the percentile, 0 if nothing is recorded
+     *
+     * @param metric
+     * @param percentile 0 to 100
+     * @return
+     */
+    public synchronized long getLatencyPercentile(int metric, double percentile) {
+        long count = latencyCounts[metric];
+
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long[] histogram = histograms[metric];
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram[i];
+
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), latencyMaxes[metric]);
+            }
+        }
+
+        return latencyMaxes[metric];
+    }
+
+    /**
+     * clear all metrics
+     */
+    public synchronized void reset() {
+        for (long[] histogram : histograms) {
+            Arrays.fill(histogram, 0);
+        }
+
+        Arrays.fill(mapCalls, 0);
+        Arrays.fill(counters, 0);
+        Arrays.fill(latencyCounts, 0);
+        Arrays.fill(latencySums, 0);
+        Arrays.fill(latencyMaxes, 0);
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,90 @@
+package tw.kewang.mapcontroller;
+
+import android.graphics.Color;
+
+/**
+ * style of a badge marker icon, icons with the same style share one bitmap
+ *
+ * @author kewang
+ */
+public class IconStyle {
+    private final String text;
+    private int textColor = Color.WHITE;
+    private int backgroundColor = 0xff0099cc;
+    private float textSize = 14;
+    private float padding = 6;
+    private String key;
+
+    public IconStyle(String text) {
+        this.text = text;
+    }
+
+    public IconStyle textColor(int textColor) {
+        this.textColor = textColor;
+        this.key = null;
+
+        return this;
+    }
+
+    public IconStyle backgroundColor(int backgroundColor) {
+        this.backgroundColor = backgroundColor;
+        this.key = null;
+
+        return this;
+    }
+
+    /**
+     * @param textSize text size in dp
+     * @return
+     */
+    public IconStyle textSize(float textSize) {
+        this.textSize = textSize;
+        this.key = null;
+
+        return this;
+    }
+
+    /**
+     * @param padding padding in dp
+     * @return
+     */
+    public IconStyle padding(float padding) {
+        this.padding = padding;
+        this.key = null;
+
+        return this;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getTextColor() {
+        return textColor;
+    }
+
+    public int getBackgroundColor() {
+        return backgroundColor;
+    }
+
+    public float getTextSize() {
+        return textSize;
+    }
+
+    public float getPadding() {
+        return padding;
+    }
+
+    /**
+     * return the cache key of this style
+     *
+     * @return
+     */
+    public String getKey() {
+        if (key == null) {
+            key = text + '|' + textColor + '|' + backgroundColor + '|' + textSize + '|' + padding;
+        }
+
+        return key;
+    }
+}
@@ -0,0 +1,45 @@
+package tw.kewang.mapcontroller;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * data source of markers kept in memory, it's useful for local data and testing
+ *
+ * @author kewang
+ */
+public class InMemoryDataSource implements DataSource {
+    private final SpatialIndex<KeyedMarkerOptions> index = new SpatialIndex<>();
+
+    public synchronized void add(KeyedMarkerOptions keyedOpts) {
+        LatLng position = keyedOpts.getOptions().getPosition();
+
+        index.add(position.latitude, position.longitude, keyedOpts);
+    }
+
+    public synchronized void addAll(Collection<KeyedMarkerOptions> allOpts) {
+        for (KeyedMarkerOptions keyedOpts : allOpts) {
+            add(keyedOpts);
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized void clear() {
+        index.clear();
+    }
+
+    @Override
+    public synchronized List<KeyedMarkerOptions> load(int zoom, int x, int y, double south, double west, double north, double east) {
+        ArrayList<KeyedMarkerOptions> result = new ArrayList<>();
+
+        index.queryBounds(south, west, north, east, result);
+
+        return result;
+    }
+}
@@ -0,0 +1,43 @@
+package tw.kewang.mapcontroller;
+
+import com.google.android.gms.maps.model.MarkerOptions;
+
+/**
+ * marker options identified by a stable key, used by
+ * {@link MapController#setMarkers(java.util.Collection)}
+ *
+ * @author kewang
+ */
+public class KeyedMarkerOptions {
+    private final Object key;
+    private final MarkerOptions opts;
+    private final Object iconKey;
+
+    public KeyedMarkerOptions(Object key, MarkerOptions opts) {
+        this(key, opts, null);
+    }
+
+    /**
+     * @param key
+     * @param opts
+     * @param iconKey identifies the icon, markers whose icon key is equal keep their icon, without
+     *                it icons are compared by reference
+     */
+    public KeyedMarkerOptions(Object key, MarkerOptions opts, Object iconKey) {
+        this.key = key;
+        this.opts = opts;
+        this.iconKey = iconKey;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    public MarkerOptions getOptions() {
+        return opts;
+    }
+
+    public Object getIconKey() {
+        return iconKey;
+    }
+}
@@ -0,0 +1,354 @@
+package tw.kewang.mapcontroller;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Polygon;
+import com.google.android.gms.maps.model.PolygonOptions;
+import com.google.android.gms.maps.model.Polyline;
+import com.google.android.gms.maps.model.PolylineOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * polyline or polygon with precomputed level of detail per zoom, only the level matching the
+ * current zoom and clipped to the visible region is handed to the renderer
+ *
+ * @author kewang
+ */
+public class LodOverlay {
+    private static final int MAX_ZOOM = 21;
+    private static final double TOLERANCE_PIXELS = 0.5;
+    private static final double MARGIN = 0.5;
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "LodOverlay");
+
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    private final GoogleMap map;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final PolylineOptions polylineStyle;
+    private final PolygonOptions polygonStyle;
+    private final double[] lats;
+    private final double[] lngs;
+    private final double[] xs;
+    private final double[] ys;
+    private final ArrayList<Polyline> polylines = new ArrayList<>();
+    private Polygon polygon;
+    private volatile int[][] levels;
+    private int generation;
+    private boolean removed;
+
+    LodOverlay(GoogleMap map, PolylineOptions opts) {
+        this(map, opts, null, opts.getPoints());
+    }
+
+    LodOverlay(GoogleMap map, PolygonOptions opts) {
+        this(map, null, opts, opts.getPoints());
+    }
+
+    private LodOverlay(GoogleMap map, PolylineOptions polylineStyle, PolygonOptions polygonStyle, List<LatLng> points) {
+        int size = points.size();
+
+        this.map = map;
+        this.polylineStyle = polylineStyle;
+        this.polygonStyle = polygonStyle;
+        this.lats = new double[size];
+        this.lngs = new double[size];
+        this.xs = new double[size];
+        this.ys = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            LatLng point = points.get(i);
+
+            lats[i] = point.latitude;
+            lngs[i] = point.longitude;
+        }
+
+        EXECUTOR.execute(() -> {
+            for (int i = 0; i < size; i++) {
+                xs[i] = WebMercator.x(lngs[i]);
+                ys[i] = WebMercator.y(lats[i]);
+            }
+
+            levels = buildLevels();
+
+            mainHandler.post(this::onCameraIdle);
+        });
+    }
+
+    /**
+     * swap in the level matching the current zoom, must be called when the camera is idle
+     */
+    public void onCameraIdle() {
+        final int[][] levels = this.levels;
+
+        if (levels == null || removed) {
+            return;
+        }
+
+        final int zoom = Math.max(0, Math.min(MAX_ZOOM, Math.round(map.getCameraPosition().zoom)));
+        final LatLngBounds bounds = map.getProjection().getVisibleRegion().latLngBounds;
+        final int token = ++generation;
+
+        EXECUTOR.execute(() -> {
+            double minX = WebMercator.x(bounds.southwest.longitude);
+            double maxX = WebMercator.x(bounds.northeast.longitude);
+            double minY = WebMercator.y(bounds.northeast.latitude);
+            double maxY = WebMercator.y(bounds.southwest.latitude);
+            double marginX = (maxX - minX) * MARGIN;
+            double marginY = (maxY - minY) * MARGIN;
+            boolean clip = minX <= maxX;
+            List<List<LatLng>> parts;
+
+            if (polygonStyle != null) {
+                parts = clipPolygon(levels[zoom], clip, minX - marginX, minY - marginY, maxX + marginX, maxY + marginY);
+            } else {
+                parts = clipPolyline(levels[zoom], clip, minX - marginX, minY - marginY, maxX + marginX, maxY + marginY);
+            }
+
+            mainHandler.post(() -> {
+                if (token == generation && !removed) {
+                    apply(parts);
+                }
+            });
+        });
+    }
+
+    /**
+     * return the number of vertices of the level for the zoom
+     *
+     * @param zoom
+     * @return
+     */
+    public int getVertexCount(int zoom) {
+        int[][] levels = this.levels;
+
+        return levels != null ? levels[Math.max(0, Math.min(MAX_ZOOM, zoom))].length : lats.length;
+    }
+
+    /**
+     * remove overlay from map
+     */
+    public void remove() {
+        removed = true;
+
+        for (Polyline polyline : polylines) {
+            polyline.remove();
+        }
+
+        polylines.clear();
+
+        if (polygon != null) {
+            polygon.remove();
+
+            polygon = null;
+        }
+    }
+
+    /**
+     * forget the shapes which GoogleMap#clear() already removed and stop updating them
+     */
+    void onMapCleared() {
+        removed = true;
+
+        polylines.clear();
+
+        polygon = null;
+    }
+
+    private int[][] buildLevels() {
+        int[][] levels = new int[MAX_ZOOM + 1][];
+        int[] previous = new int[lats.length];
+
+        for (int i = 0; i < previous.length; i++) {
+            previous[i] = i;
+        }
+
+        // each level is simplified from the next finer one
+        for (int zoom = MAX_ZOOM; zoom >= 0; zoom--) {
+            int count = previous.length;
+            double[] levelXs = new double[count];
+            double[] levelYs = new double[count];
+            int[] kept = new int[count];
+
+            for (int i = 0; i < count; i++) {
+                levelXs[i] = xs[previous[i]];
+                levelYs[i] = ys[previous[i]];
+            }
+
+            int keptCount = count > 0 ? Simplifier.simplify(levelXs, levelYs, 0, count - 1, TOLERANCE_PIXELS / (256 * Math.pow(2, zoom)), kept) : 0;
+            int[] level = new int[keptCount];
+
+            for (int i = 0; i < keptCount; i++) {
+                level[i] = previous[kept[i]];
+            }
+
+            levels[zoom] = level;
+            previous = level;
+        }
+
+        return levels;
+    }
+
+    private List<List<LatLng>> clipPolyline(int[] level, boolean clip, double minX, double minY, double maxX, double maxY) {
+        List<List<LatLng>> parts = new ArrayList<>();
+        List<LatLng> part = null;
+
+        for (int i = 0; i + 1 < level.length; i++) {
+            int a = level[i];
+            int b = level[i + 1];
+            boolean visible = !clip || (Math.max(xs[a], xs[b]) >= minX && Math.min(xs[a], xs[b]) <= maxX
+                    && Math.max(ys[a], ys[b]) >= minY && Math.min(ys[a], ys[b]) <= maxY);
+
+            if (!visible) {
+                part = null;
+
+                continue;
+            }
+
+            if (part == null) {
+                part = new ArrayList<>();
+
+                part.add(new LatLng(lats[a], lngs[a]));
+                parts.add(part);
+            }
+
+            part.add(new LatLng(lats[b], lngs[b]));
+        }
+
+        return parts;
+    }
+
+    private List<List<LatLng>> clipPolygon(int[] level, boolean clip, double minX, double minY, double maxX, double maxY) {
+        int count = level.length;
+        double[] px = new double[count];
+        double[] py = new double[count];
+
+        for (int i = 0; i < count; i++) {
+            px[i] = xs[level[i]];
+            py[i] = ys[level[i]];
+        }
+
+        if (clip) {
+            // Sutherland-Hodgman against each edge of the rectangle
+            for (int edge = 0; edge < 4 && count > 0; edge++) {
+                double[] outX = new double[count * 2];
+                double[] outY = new double[count * 2];
+                int outCount = 0;
+
+                for (int i = 0; i < count; i++) {
+                    int j = (i + 1) % count;
+                    boolean inI = inside(edge, px[i], py[i], minX, minY, maxX, maxY);
+                    boolean inJ = inside(edge, px[j], py[j], minX, minY, maxX, maxY);
+
+                    if (inI) {
+                        outX[outCount] = px[i];
+                        outY[outCount] = py[i];
+                        outCount++;
+                    }
+
+                    if (inI != inJ) {
+                        double t = intersect(edge, px[i], py[i], px[j], py[j], minX, minY, maxX, maxY);
+
+                        outX[outCount] = px[i] + (px[j] - px[i]) * t;
+                        outY[outCount] = py[i] + (py[j] - py[i]) * t;
+                        outCount++;
+                    }
+                }
+
+                px = outX;
+                py = outY;
+                count = outCount;
+            }
+        }
+
+        List<List<LatLng>> parts = new ArrayList<>(1);
+
+        if (count >= 3) {
+            List<LatLng> ring = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++) {
+                ring.add(new LatLng(WebMercator.lat(py[i]), WebMercator.lng(px[i])));
+            }
+
+            parts.add(ring);
+        }
+
+        return parts;
+    }
+
+    private static boolean inside(int edge, double x, double y, double minX, double minY, double maxX, double maxY) {
+        switch (edge) {
+            case 0:
+                return x >= minX;
+            case 1:
+                return x <= maxX;
+            case 2:
+                return y >= minY;
+            default:
+                return y <= maxY;
+        }
+    }
+
+    private static double intersect(int edge, double x1, double y1, double x2, double y2, double minX, double minY, double maxX, double maxY) {
+        switch (edge) {
+            case 0:
+                return (minX - x1) / (x2 - x1);
+            case 1:
+                return (maxX - x1) / (x2 - x1);
+            case 2:
+                return (minY - y1) / (y2 - y1);
+            default:
+                return (maxY - y1) / (y2 - y1);
+        }
+    }
+
+    private void apply(List<List<LatLng>> parts) {
+        if (polygonStyle != null) {
+            if (parts.isEmpty()) {
+                if (polygon != null) {
+                    polygon.setVisible(false);
+                }
+            } else if (polygon == null) {
+                polygon = map.addPolygon(new PolygonOptions()
+                        .addAll(parts.get(0))
+                        .fillColor(polygonStyle.getFillColor())
+                        .strokeColor(polygonStyle.getStrokeColor())
+                        .strokeWidth(polygonStyle.getStrokeWidth())
+                        .zIndex(polygonStyle.getZIndex()));
+            } else {
+                polygon.setPoints(parts.get(0));
+                polygon.setVisible(true);
+            }
+
+            return;
+        }
+
+        for (int i = 0; i < parts.size(); i++) {
+            if (i < polylines.size()) {
+                polylines.get(i).setPoints(parts.get(i));
+            } else {
+                polylines.add(map.addPolyline(new PolylineOptions()
+                        .addAll(parts.get(i))
+                        .color(polylineStyle.getColor())
+                        .width(polylineStyle.getWidth())
+                        .zIndex(polylineStyle.getZIndex())
+                        .geodesic(polylineStyle.isGeodesic())));
+            }
+        }
+
+        while (polylines.size() > parts.size()) {
+            polylines.remove(polylines.size() - 1).remove();
+        }
+    }
+}
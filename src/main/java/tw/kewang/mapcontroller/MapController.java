@@ -1,13 +1,11 @@
 package tw.kewang.mapcontroller;
 
 import android.Manifest;
-import android.app.ProgressDialog;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.location.Address;
 import android.location.Geocoder;
 import android.location.Location;
-import android.os.AsyncTask;
 import android.util.Log;
 import android.view.View;
 
@@ -22,32 +20,72 @@ import com.google.android.gms.maps.CameraUpdate;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.GoogleMap.InfoWindowAdapter;
-import com.google.android.gms.maps.GoogleMap.OnCameraIdleListener;
 import com.google.android.gms.maps.GoogleMap.OnMarkerDragListener;
 import com.google.android.gms.maps.MapFragment;
 import com.google.android.gms.maps.MapView;
 import com.google.android.gms.maps.MapsInitializer;
+import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.android.gms.maps.model.CameraPosition;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.PolygonOptions;
+import com.google.android.gms.maps.model.PolylineOptions;
+import com.google.android.gms.maps.model.TileOverlayOptions;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * @author kewang
  */
 public class MapController {
     private static final String TAG = MapController.class.getSimpleName();
+    private static final double DEFAULT_ADDRESS_CELL_METERS = 30;
+    private static final int FIND_ALL_PADDING = 100;
 
     private Context context;
     private GoogleMap map;
-    private ArrayList<Marker> markers;
-    private OnCameraIdleListener cameraIdleListener;
+    private final SpatialIndex<Marker> markerIndex = new SpatialIndex<>();
+    private final MarkerStore<Marker> markerStore = new MarkerStore<>();
+    private final HashMap<Marker, Integer> markerIds = new HashMap<>();
+    private final HashMap<Object, KeyedMarker> keyedMarkers = new HashMap<>();
+    private final HashMap<Marker, Object> markerKeys = new HashMap<>();
+    private final HashMap<Marker, MarkerHandler> markerHandlers = new HashMap<>();
+    private MarkerCallback markerClickCallback;
+    private MarkerCallback infoWindowClickCallback;
+    private MarkerDrag markerDragCallback;
+    private boolean markerListenersInstalled;
+    private CameraScheduler cameraScheduler;
+    private boolean cameraIdleListenerInstalled;
+    private ViewportEvents viewportEvents;
+    private TileLoader tileLoader;
+    private MarkerClusterer clusterer;
+    private ViewportMarkers viewportMarkers;
+    private MarkerLoader markerLoader;
+    private MarkerStream markerStream;
+    private GeocodeCache geocodeCache;
+    private double addressCellMeters = DEFAULT_ADDRESS_CELL_METERS;
+    private MarkerIconFactory iconFactory;
+    private final ArrayList<LodOverlay> overlays = new ArrayList<>();
+    private final ArrayList<HeatmapTileProvider> heatmaps = new ArrayList<>();
     private FusedLocationProviderClient fusedLocationProviderClient;
     private LocationCallback locationCallback;
+    private final AdaptiveTracking adaptiveTracking = new AdaptiveTracking();
+    private boolean trackingAdaptively;
+    private TrackRecorder trackRecorder;
+    private MetricsSink metrics;
+    private long lastFixNanos;
 
     /**
      * attach Google Maps
@@ -61,6 +99,7 @@ public class MapController {
             throw new RuntimeException("GoogleMap can't not be null.");
         }
 
+        this.context = context;
         this.map = map;
     }
 
@@ -139,6 +178,9 @@ public class MapController {
             fusedLocationProviderClient = LocationServices.getFusedLocationProviderClient(context);
         }
 
+        // a previous request would keep delivering fixes to its own callback
+        stopTrackMyLocation();
+
         LocationRequest request = LocationRequest.create().setInterval(interval).setFastestInterval(16).setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY);
 
         if (numUpdates != 0) {
@@ -148,33 +190,56 @@ public class MapController {
         locationCallback = new LocationCallback() {
             @Override
             public void onLocationResult(LocationResult locationResult) {
-                Location location1 = locationResult.getLastLocation();
-
-                if (map != null) {
-                    CameraUpdate latLng = CameraUpdateFactory.newLatLng(new LatLng(location1.getLatitude(), location1.getLongitude()));
-
-                    if (ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED && ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
-                        // TODO: Consider calling
-                        //    ActivityCompat#requestPermissions
-                        // here to request the missing permissions, and then overriding
-                        //   public void onRequestPermissionsResult(int requestCode, String[] permissions,
-                        //                                          int[] grantResults)
-                        // to handle the case where the user grants the permission. See the documentation
-                        // for ActivityCompat#requestPermissions for more details.
-                        return;
-                    }
+                recordFixes(1);
+                recordMyLocation(locationResult.getLastLocation());
+                changeMyLocation(map, locationResult.getLastLocation(), type, callback);
+            }
+        };
 
-                    map.setMyLocationEnabled(true);
+        fusedLocationProviderClient.requestLocationUpdates(request, locationCallback, null);
+    }
 
-                    if (type == TrackType.TRACK_TYPE_MOVE) {
-                        map.moveCamera(latLng);
-                    } else if (type == TrackType.TRACK_TYPE_ANIMATE) {
-                        map.animateCamera(latLng);
-                    }
+    /**
+     * start tracking my current location in batches, fixes are collected for up to maxWaitTime and
+     * delivered together, the camera follows only the last fix of each batch
+     *
+     * @param interval
+     * @param maxWaitTime
+     * @param type
+     * @param callback
+     */
+    public void startTrackMyLocationBatched(long interval, long maxWaitTime, TrackType type, ChangeMyLocations callback) {
+        if (fusedLocationProviderClient == null) {
+            fusedLocationProviderClient = LocationServices.getFusedLocationProviderClient(context);
+        }
+
+        stopTrackMyLocation();
+
+        LocationRequest request = LocationRequest.create()
+                .setInterval(interval)
+                .setFastestInterval(interval / 2)
+                .setMaxWaitTime(maxWaitTime)
+                .setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY);
+
+        locationCallback = new LocationCallback() {
+            @Override
+            public void onLocationResult(LocationResult locationResult) {
+                List<Location> locations = locationResult.getLocations();
+
+                if (locations.isEmpty()) {
+                    return;
+                }
+
+                recordFixes(locations.size());
+
+                if (trackRecorder != null) {
+                    trackRecorder.addAll(locations);
                 }
 
+                changeMyLocation(map, locations.get(locations.size() - 1), type, null);
+
                 if (callback != null) {
-                    callback.changed(map, location1);
+                    callback.changed(map, locations);
                 }
             }
         };
@@ -182,6 +247,177 @@ public class MapController {
         fusedLocationProviderClient.requestLocationUpdates(request, locationCallback, null);
     }
 
+    /**
+     * start tracking my current location in batches
+     *
+     * @param maxWaitTime
+     * @param callback
+     */
+    public void startTrackMyLocationBatched(long maxWaitTime, ChangeMyLocations callback) {
+        startTrackMyLocationBatched(5000, maxWaitTime, TrackType.TRACK_TYPE_NONE, callback);
+    }
+
+    /**
+     * start tracking my current location adaptively, the interval, priority and smallest
+     * displacement follow the observed speed and whether the app is in the foreground, and fixes
+     * which didn't move far enough are dropped
+     *
+     * @param type
+     * @param callback
+     */
+    public void startTrackMyLocationAdaptive(TrackType type, ChangeMyLocation callback) {
+        if (fusedLocationProviderClient == null) {
+            fusedLocationProviderClient = LocationServices.getFusedLocationProviderClient(context);
+        }
+
+        stopTrackMyLocation();
+
+        adaptiveTracking.reset();
+
+        trackingAdaptively = true;
+
+        locationCallback = new LocationCallback() {
+            private int requestTier = adaptiveTracking.getTier();
+
+            @Override
+            public void onLocationResult(LocationResult locationResult) {
+                // a result already queued for a removed callback mustn't request updates again
+                if (locationCallback != this) {
+                    return;
+                }
+
+                Location location = locationResult.getLastLocation();
+
+                recordFixes(1);
+
+                boolean accepted = adaptiveTracking.accept(location);
+
+                // dropped fixes still update the tier, so a device which stopped falls back to
+                // the still tier
+                if (adaptiveTracking.tierChanged(requestTier)) {
+                    requestTier = adaptiveTracking.getTier();
+
+                    fusedLocationProviderClient.requestLocationUpdates(adaptiveTracking.createRequest(), this, null);
+                }
+
+                if (!accepted) {
+                    if (metrics != null) {
+                        metrics.count(MetricsSink.COUNT_DROPPED_FIXES, 1);
+                    }
+
+                    return;
+                }
+
+                recordMyLocation(location);
+                changeMyLocation(map, location, type, callback);
+            }
+        };
+
+        fusedLocationProviderClient.requestLocationUpdates(adaptiveTracking.createRequest(), locationCallback, null);
+    }
+
+    /**
+     * tell adaptive tracking whether the app is in the foreground
+     *
+     * @param foreground
+     */
+    public void setForeground(boolean foreground) {
+        if (adaptiveTracking.setForeground(foreground) && trackingAdaptively) {
+            fusedLocationProviderClient.requestLocationUpdates(adaptiveTracking.createRequest(), locationCallback, null);
+        }
+    }
+
+    /**
+     * return the adaptive tracking policy
+     *
+     * @return
+     */
+    public AdaptiveTracking getAdaptiveTracking() {
+        return adaptiveTracking;
+    }
+
+    private void recordFixes(int count) {
+        if (metrics == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+
+        if (lastFixNanos != 0) {
+            metrics.latency(MetricsSink.LATENCY_FIX_INTERVAL, now - lastFixNanos);
+        }
+
+        lastFixNanos = now;
+
+        metrics.count(MetricsSink.COUNT_FIXES, count);
+    }
+
+    private void recordMyLocation(Location location) {
+        if (trackRecorder != null) {
+            trackRecorder.add(location);
+        }
+    }
+
+    private void changeMyLocation(GoogleMap map, Location location1, TrackType type, ChangeMyLocation callback) {
+        if (map != null) {
+            CameraUpdate latLng = CameraUpdateFactory.newLatLng(new LatLng(location1.getLatitude(), location1.getLongitude()));
+
+            if (ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED && ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
+                // TODO: Consider calling
+                //    ActivityCompat#requestPermissions
+                // here to request the missing permissions, and then overriding
+                //   public void onRequestPermissionsResult(int requestCode, String[] permissions,
+                //                                          int[] grantResults)
+                // to handle the case where the user grants the permission. See the documentation
+                // for ActivityCompat#requestPermissions for more details.
+                return;
+            }
+
+            map.setMyLocationEnabled(true);
+
+            if (metrics != null) {
+                metrics.mapCalls(MetricsSink.OP_TRACK_MY_LOCATION, 1);
+            }
+
+            if (type == TrackType.TRACK_TYPE_MOVE) {
+                getCameraScheduler().schedule(latLng, false, MetricsSink.OP_TRACK_MY_LOCATION, null);
+            } else if (type == TrackType.TRACK_TYPE_ANIMATE) {
+                getCameraScheduler().schedule(latLng, true, MetricsSink.OP_TRACK_MY_LOCATION, null);
+            }
+        }
+
+        if (callback != null) {
+            callback.changed(map, location1);
+        }
+    }
+
+    /**
+     * record the tracked locations as a polyline, tracking must be started separately
+     *
+     * @param style
+     * @return
+     */
+    public TrackRecorder startRecordingTrack(PolylineOptions style) {
+        stopRecordingTrack();
+
+        trackRecorder = new TrackRecorder(map, style);
+
+        return trackRecorder;
+    }
+
+    /**
+     * stop recording the tracked locations, the recorded polyline is kept
+     *
+     * @return
+     */
+    public TrackRecorder stopRecordingTrack() {
+        TrackRecorder recorder = trackRecorder;
+
+        trackRecorder = null;
+
+        return recorder;
+    }
+
     /**
      * start tracking my current location
      *
@@ -206,9 +442,14 @@ public class MapController {
      * stop tracking my current location
      */
     public void stopTrackMyLocation() {
-        fusedLocationProviderClient.removeLocationUpdates(locationCallback);
+        if (locationCallback != null) {
+            fusedLocationProviderClient.removeLocationUpdates(locationCallback);
+
+            locationCallback = null;
+        }
 
-        locationCallback = null;
+        trackingAdaptively = false;
+        lastFixNanos = 0;
     }
 
     /**
@@ -269,21 +510,7 @@ public class MapController {
      * @param callback
      */
     public void animateTo(LatLng latLng, int zoom, ChangePosition callback) {
-        if (cameraIdleListener == null) {
-            cameraIdleListener = () -> {
-                map.setOnCameraIdleListener(null);
-
-                cameraIdleListener = null;
-
-                if (callback != null) {
-                    callback.changed(map, map.getCameraPosition());
-                }
-            };
-
-            map.setOnCameraIdleListener(cameraIdleListener);
-        }
-
-        map.animateCamera(CameraUpdateFactory.newLatLngZoom(latLng, zoom));
+        getCameraScheduler().schedule(CameraUpdateFactory.newLatLngZoom(latLng, zoom), true, callback);
     }
 
     /**
@@ -366,21 +593,7 @@ public class MapController {
      * @param callback
      */
     public void moveTo(LatLng latLng, int zoom, ChangePosition callback) {
-        if (cameraIdleListener == null) {
-            cameraIdleListener = () -> {
-                map.setOnCameraIdleListener(null);
-
-                cameraIdleListener = null;
-
-                if (callback != null) {
-                    callback.changed(map, map.getCameraPosition());
-                }
-            };
-
-            map.setOnCameraIdleListener(cameraIdleListener);
-        }
-
-        map.moveCamera(CameraUpdateFactory.newLatLngZoom(latLng, zoom));
+        getCameraScheduler().schedule(CameraUpdateFactory.newLatLngZoom(latLng, zoom), false, callback);
     }
 
     /**
@@ -464,25 +677,7 @@ public class MapController {
      * @param callback
      */
     public void setBounds(LatLng southwest, LatLng northeast, int padding, boolean smooth, ChangePosition callback) {
-        if (cameraIdleListener == null) {
-            cameraIdleListener = () -> {
-                map.setOnCameraIdleListener(null);
-
-                cameraIdleListener = null;
-
-                if (callback != null) {
-                    callback.changed(map, map.getCameraPosition());
-                }
-            };
-
-            map.setOnCameraIdleListener(cameraIdleListener);
-        }
-
-        if (smooth) {
-            map.animateCamera(CameraUpdateFactory.newLatLngBounds(new LatLngBounds(southwest, northeast), padding));
-        } else {
-            map.moveCamera(CameraUpdateFactory.newLatLngBounds(new LatLngBounds(southwest, northeast), padding));
-        }
+        getCameraScheduler().schedule(CameraUpdateFactory.newLatLngBounds(new LatLngBounds(southwest, northeast), padding), smooth, callback);
     }
 
     /**
@@ -539,6 +734,17 @@ public class MapController {
         setBounds(new LatLng(swLat, swLng), new LatLng(neLat, neLng), padding, true, callback);
     }
 
+    /**
+     * stop the camera animation and drop pending camera updates with their callbacks
+     */
+    public void stopAnimation() {
+        if (cameraScheduler != null) {
+            cameraScheduler.cancel();
+        }
+
+        map.stopAnimation();
+    }
+
     /**
      * zoom map
      *
@@ -709,162 +915,278 @@ public class MapController {
     }
 
     /**
-     * when info window is clicked
+     * when the viewport has settled, the callback is invoked once the camera stays idle for the
+     * debounce time, with the visible bounds, the zoom and whether the integer zoom level changed
+     * since the previous callback, several callbacks can be subscribed
+     * <p>
+     * the controller owns the camera idle and camera move started listeners of the map, don't
+     * set them on the map directly
      *
      * @param callback
+     * @see #setViewportDebounce(long)
      */
-    public void whenInfoWindowClick(final MarkerCallback callback) {
-        map.setOnInfoWindowClickListener(marker -> callback.invokedMarker(map, marker));
+    public void whenViewportChanged(ViewportChanged callback) {
+        getViewportEvents().add(callback);
     }
 
     /**
-     * when marker is clicked
+     * unsubscribe callback of whenViewportChanged
      *
      * @param callback
+     * @return false if the callback isn't subscribed
      */
-    public void whenMarkerClick(final MarkerCallback callback) {
-        map.setOnMarkerClickListener(marker -> {
-            callback.invokedMarker(map, marker);
-
-            return true;
-        });
+    public boolean removeViewportChanged(ViewportChanged callback) {
+        return viewportEvents != null && viewportEvents.remove(callback);
     }
 
     /**
-     * when marker is dragged
+     * set how long the camera must stay idle before viewport callbacks are invoked
      *
-     * @param callback
+     * @param millis
      */
-    public void whenMarkerDrag(MarkerDrag callback) {
-        map.setOnMarkerDragListener(new OnMarkerDragListener() {
-            @Override
-            public void onMarkerDragStart(Marker marker) {
-                callback.markerDragStart(map, marker);
-            }
-
-            @Override
-            public void onMarkerDrag(Marker marker) {
-                callback.markerDrag(map, marker);
-            }
-
-            @Override
-            public void onMarkerDragEnd(Marker marker) {
-                callback.markerDragEnd(map, marker);
-            }
-        });
+    public void setViewportDebounce(long millis) {
+        getViewportEvents().setDebounce(millis);
     }
 
     /**
-     * add marker to map
+     * when info window is clicked, markers with their own handler are dispatched to it instead
      *
-     * @param opts
      * @param callback
-     * @return
+     * @see #setInfoWindowClick(Marker, MarkerCallback)
      */
-    public Marker addMarker(MarkerOptions opts, MarkerCallback callback) {
-        Marker marker = map.addMarker(opts);
-
-        if (markers == null) {
-            markers = new ArrayList<>();
-        }
-
-        markers.add(marker);
-
-        if (callback != null) {
-            callback.invokedMarker(map, marker);
-        }
+    public void whenInfoWindowClick(final MarkerCallback callback) {
+        infoWindowClickCallback = callback;
 
-        return marker;
+        setupMarkerListeners();
     }
 
     /**
-     * add marker to map
+     * when marker is clicked, markers with their own handler are dispatched to it instead
      *
-     * @param opts
-     * @return
+     * @param callback
+     * @see #setMarkerClick(Marker, MarkerCallback)
      */
-    public Marker addMarker(MarkerOptions opts) {
-        return addMarker(opts, null);
-    }
+    public void whenMarkerClick(final MarkerCallback callback) {
+        markerClickCallback = callback;
 
-    /**
-     * add marker to map
-     *
-     * @param latLng
-     * @param opts
-     * @return
-     */
-    public Marker addMarker(LatLng latLng, MarkerOptions opts) {
-        return addMarker(opts.position(latLng), null);
+        setupMarkerListeners();
     }
 
     /**
-     * add marker to map
+     * when marker is dragged, markers with their own handler are dispatched to it instead
      *
-     * @param lat
-     * @param lng
-     * @param opts
-     * @return
+     * @param callback
+     * @see #setMarkerDrag(Marker, MarkerDrag)
      */
-    public Marker addMarker(double lat, double lng, MarkerOptions opts) {
-        return addMarker(opts.position(new LatLng(lat, lng)), null);
+    public void whenMarkerDrag(MarkerDrag callback) {
+        markerDragCallback = callback;
+
+        setupMarkerListeners();
     }
 
     /**
-     * add marker to map
+     * set click handler of the marker, it's dropped when the marker is removed
      *
-     * @param latLng
-     * @return
+     * @param marker
+     * @param callback
      */
-    public Marker addMarker(LatLng latLng) {
-        return addMarker(new MarkerOptions().position(latLng), null);
+    public void setMarkerClick(Marker marker, MarkerCallback callback) {
+        getMarkerHandler(marker).click = callback;
+
+        setupMarkerListeners();
     }
 
     /**
-     * add marker to map
+     * set info window click handler of the marker, it's dropped when the marker is removed
      *
-     * @param lat
-     * @param lng
-     * @return
+     * @param marker
+     * @param callback
      */
-    public Marker addMarker(double lat, double lng) {
-        return addMarker(new MarkerOptions().position(new LatLng(lat, lng)), null);
+    public void setInfoWindowClick(Marker marker, MarkerCallback callback) {
+        getMarkerHandler(marker).infoWindowClick = callback;
+
+        setupMarkerListeners();
     }
 
     /**
-     * add marker to map
+     * set drag handler of the marker, it's dropped when the marker is removed
      *
-     * @param latLng
-     * @param opts
+     * @param marker
      * @param callback
-     * @return
      */
-    public Marker addMarker(LatLng latLng, MarkerOptions opts, MarkerCallback callback) {
-        return addMarker(opts.position(latLng), callback);
+    public void setMarkerDrag(Marker marker, MarkerDrag callback) {
+        getMarkerHandler(marker).drag = callback;
+
+        setupMarkerListeners();
     }
 
     /**
-     * add marker to map
+     * attach payload to the marker, such as the entity it belongs to
      *
-     * @param lat
-     * @param lng
-     * @param opts
-     * @param callback
-     * @return
+     * @param marker
+     * @param payload
      */
-    public Marker addMarker(double lat, double lng, MarkerOptions opts, MarkerCallback callback) {
-        return addMarker(opts.position(new LatLng(lat, lng)), callback);
+    public void setMarkerPayload(Marker marker, Object payload) {
+        getMarkerHandler(marker).payload = payload;
     }
 
     /**
-     * add marker to map
+     * return payload attached to the marker, or null if there is none
      *
-     * @param latLng
-     * @param callback
+     * @param marker
      * @return
      */
-    public Marker addMarker(LatLng latLng, MarkerCallback callback) {
-        return addMarker(new MarkerOptions().position(latLng), callback);
+    @SuppressWarnings("unchecked")
+    public <T> T getMarkerPayload(Marker marker) {
+        MarkerHandler handler = markerHandlers.get(marker);
+
+        return handler != null ? (T) handler.payload : null;
+    }
+
+    private MarkerHandler getMarkerHandler(Marker marker) {
+        MarkerHandler handler = markerHandlers.get(marker);
+
+        if (handler == null) {
+            handler = new MarkerHandler();
+
+            markerHandlers.put(marker, handler);
+        }
+
+        return handler;
+    }
+
+    /**
+     * install one listener per event type, they look up the handler of the marker in constant time
+     */
+    private void setupMarkerListeners() {
+        if (markerListenersInstalled) {
+            return;
+        }
+
+        markerListenersInstalled = true;
+
+        map.setOnMarkerClickListener(marker -> {
+            MarkerHandler handler = markerHandlers.get(marker);
+            MarkerCallback callback = handler != null && handler.click != null ? handler.click : markerClickCallback;
+
+            if (callback == null) {
+                return false;
+            }
+
+            callback.invokedMarker(map, marker);
+
+            return true;
+        });
+
+        map.setOnInfoWindowClickListener(marker -> {
+            MarkerHandler handler = markerHandlers.get(marker);
+            MarkerCallback callback = handler != null && handler.infoWindowClick != null ? handler.infoWindowClick : infoWindowClickCallback;
+
+            if (callback != null) {
+                callback.invokedMarker(map, marker);
+            }
+        });
+
+        map.setOnMarkerDragListener(new OnMarkerDragListener() {
+            @Override
+            public void onMarkerDragStart(Marker marker) {
+                MarkerDrag callback = findMarkerDrag(marker);
+
+                if (callback != null) {
+                    callback.markerDragStart(map, marker);
+                }
+            }
+
+            @Override
+            public void onMarkerDrag(Marker marker) {
+                MarkerDrag callback = findMarkerDrag(marker);
+
+                if (callback != null) {
+                    callback.markerDrag(map, marker);
+                }
+            }
+
+            @Override
+            public void onMarkerDragEnd(Marker marker) {
+                Integer id = markerIds.get(marker);
+
+                // keep the spatial index in sync with the dropped position
+                if (id != null) {
+                    moveTrackedMarker(id, marker.getPosition());
+                }
+
+                MarkerDrag callback = findMarkerDrag(marker);
+
+                if (callback != null) {
+                    callback.markerDragEnd(map, marker);
+                }
+            }
+        });
+    }
+
+    private MarkerDrag findMarkerDrag(Marker marker) {
+        MarkerHandler handler = markerHandlers.get(marker);
+
+        return handler != null && handler.drag != null ? handler.drag : markerDragCallback;
+    }
+
+    /**
+     * add marker to map, when virtual markers are enabled it returns null if the marker is
+     * outside the visible region
+     *
+     * @param opts
+     * @param callback
+     * @return
+     */
+    public Marker addMarker(MarkerOptions opts, MarkerCallback callback) {
+        if (viewportMarkers != null) {
+            Marker marker = viewportMarkers.add(opts);
+
+            if (marker != null && metrics != null) {
+                metrics.mapCalls(MetricsSink.OP_ADD_MARKER, 1);
+            }
+
+            if (marker != null && callback != null) {
+                callback.invokedMarker(map, marker);
+            }
+
+            return marker;
+        }
+
+        Marker marker = map.addMarker(opts);
+
+        if (metrics != null) {
+            metrics.mapCalls(MetricsSink.OP_ADD_MARKER, 1);
+        }
+
+        trackMarker(marker, opts);
+
+        if (callback != null) {
+            callback.invokedMarker(map, marker);
+        }
+
+        return marker;
+    }
+
+    /**
+     * add marker to map
+     *
+     * @param opts
+     * @return
+     */
+    public Marker addMarker(MarkerOptions opts) {
+        return addMarker(opts, null);
+    }
+
+    /**
+     * add marker to map
+     *
+     * @param latLng
+     * @param opts
+     * @return
+     */
+    public Marker addMarker(LatLng latLng, MarkerOptions opts) {
+        return addMarker(opts.position(latLng), null);
     }
 
     /**
@@ -872,72 +1194,878 @@ public class MapController {
      *
      * @param lat
      * @param lng
+     * @param opts
+     * @return
+     */
+    public Marker addMarker(double lat, double lng, MarkerOptions opts) {
+        return addMarker(opts.position(new LatLng(lat, lng)), null);
+    }
+
+    /**
+     * add marker to map
+     *
+     * @param latLng
+     * @return
+     */
+    public Marker addMarker(LatLng latLng) {
+        return addMarker(new MarkerOptions().position(latLng), null);
+    }
+
+    /**
+     * add marker to map
+     *
+     * @param lat
+     * @param lng
+     * @return
+     */
+    public Marker addMarker(double lat, double lng) {
+        return addMarker(new MarkerOptions().position(new LatLng(lat, lng)), null);
+    }
+
+    /**
+     * add marker to map
+     *
+     * @param latLng
+     * @param opts
+     * @param callback
+     * @return
+     */
+    public Marker addMarker(LatLng latLng, MarkerOptions opts, MarkerCallback callback) {
+        return addMarker(opts.position(latLng), callback);
+    }
+
+    /**
+     * add marker to map
+     *
+     * @param lat
+     * @param lng
+     * @param opts
+     * @param callback
+     * @return
+     */
+    public Marker addMarker(double lat, double lng, MarkerOptions opts, MarkerCallback callback) {
+        return addMarker(opts.position(new LatLng(lat, lng)), callback);
+    }
+
+    /**
+     * add marker to map
+     *
+     * @param latLng
+     * @param callback
+     * @return
+     */
+    public Marker addMarker(LatLng latLng, MarkerCallback callback) {
+        return addMarker(new MarkerOptions().position(latLng), callback);
+    }
+
+    /**
+     * add marker to map
+     *
+     * @param lat
+     * @param lng
+     * @param callback
+     * @return
+     */
+    public Marker addMarker(double lat, double lng, MarkerCallback callback) {
+        return addMarker(new MarkerOptions().position(new LatLng(lat, lng)), callback);
+    }
+
+    /**
+     * add marker to map with a badge icon, the marker is shown when the icon is rendered
+     *
+     * @param opts
+     * @param style
+     * @return
+     * @throws IllegalStateException if virtual markers are enabled
+     */
+    public Marker addMarkerWithIcon(MarkerOptions opts, IconStyle style) {
+        requireTrackedMarkers();
+
+        MarkerIconFactory factory = getIconFactory();
+        BitmapDescriptor icon = factory.getCached(style);
+
+        if (icon != null) {
+            return addMarker(copyOf(opts).icon(icon), null);
+        }
+
+        boolean visible = opts.isVisible();
+        Marker marker = addMarker(copyOf(opts).visible(false), null);
+
+        if (marker != null) {
+            int id = getMarkerId(marker);
+
+            factory.load(style, descriptor -> {
+                // the marker may be removed before its icon is rendered
+                if (markerStore.get(id) != marker) {
+                    return;
+                }
+
+                marker.setIcon(descriptor);
+                marker.setVisible(visible);
+            });
+        }
+
+        return marker;
+    }
+
+    private static MarkerOptions copyOf(MarkerOptions opts) {
+        return new MarkerOptions()
+                .position(opts.getPosition())
+                .title(opts.getTitle())
+                .snippet(opts.getSnippet())
+                .icon(opts.getIcon())
+                .anchor(opts.getAnchorU(), opts.getAnchorV())
+                .infoWindowAnchor(opts.getInfoWindowAnchorU(), opts.getInfoWindowAnchorV())
+                .zIndex(opts.getZIndex())
+                .alpha(opts.getAlpha())
+                .rotation(opts.getRotation())
+                .draggable(opts.isDraggable())
+                .flat(opts.isFlat())
+                .visible(opts.isVisible());
+    }
+
+    /**
+     * return the marker icon factory, it's created on first use
+     *
+     * @return
+     */
+    public MarkerIconFactory getIconFactory() {
+        if (iconFactory == null) {
+            iconFactory = new MarkerIconFactory();
+        }
+
+        return iconFactory;
+    }
+
+    /**
+     * add all markers to map, when clustering or virtual markers are enabled the markers are
+     * handed over to them instead and callback is not invoked
+     *
+     * @param allOpts
+     * @param callback
+     */
+    public void addMarkers(ArrayList<MarkerOptions> allOpts, MarkerCallback callback) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        int calls = 0;
+
+        if (clusterer != null) {
+            clusterer.addItems(allOpts);
+        } else if (viewportMarkers != null) {
+            int live = viewportMarkers.getLiveCount();
+
+            viewportMarkers.addAll(allOpts);
+
+            calls = viewportMarkers.getLiveCount() - live;
+        } else {
+            for (MarkerOptions opts : allOpts) {
+                Marker marker = map.addMarker(opts);
+
+                trackMarker(marker, opts);
+
+                if (callback != null) {
+                    callback.invokedMarker(map, marker);
+                }
+            }
+
+            calls = allOpts.size();
+        }
+
+        if (metrics != null) {
+            metrics.mapCalls(MetricsSink.OP_ADD_MARKERS, calls);
+            metrics.latency(MetricsSink.LATENCY_ADD_MARKERS, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * add all markers to map
+     *
+     * @param allOpts
+     */
+    public void addMarkers(ArrayList<MarkerOptions> allOpts) {
+        addMarkers(allOpts, null);
+    }
+
+    /**
+     * add all markers to map in chunks, each frame only spends the frame budget on adding markers,
+     * a loading still in progress is cancelled
+     *
+     * @param allOpts
+     * @param frameBudgetMillis
+     * @param callback
+     * @return
+     */
+    public MarkerLoader addMarkersIncrementally(List<MarkerOptions> allOpts, long frameBudgetMillis, LoadMarkers callback) {
+        cancelLoadingMarkers();
+
+        markerLoader = new MarkerLoader(map, allOpts, frameBudgetMillis * 1_000_000L, this::trackMarker, callback);
+
+        markerLoader.start();
+
+        return markerLoader;
+    }
+
+    /**
+     * add records of the POI file, they're clustered when clustering is enabled, otherwise they're
+     * added as virtual markers, which are enabled if needed, so a record is only read into a marker
+     * when it's shown
+     *
+     * @param file
+     * @see PoiWriter
+     */
+    public void addMarkers(PoiFile file) {
+        if (clusterer != null) {
+            clusterer.addItems(file);
+
+            return;
+        }
+
+        setVirtualMarkersEnabled(true);
+
+        viewportMarkers.addAll(file);
+    }
+
+    /**
+     * add all markers to map in chunks
+     *
+     * @param allOpts
+     * @param callback
+     * @return
+     */
+    public MarkerLoader addMarkersIncrementally(List<MarkerOptions> allOpts, LoadMarkers callback) {
+        return addMarkersIncrementally(allOpts, MarkerLoader.DEFAULT_FRAME_BUDGET_NANOS / 1_000_000L, callback);
+    }
+
+    /**
+     * add markers of the source while it's read on a background thread, at most one batch is
+     * added per frame and the reader waits when a batch is pending, the total passed to the
+     * progress callback is -1 until the source is exhausted
+     *
+     * @param source
+     * @param batchSize
+     * @param callback
+     * @return
+     * @see MarkerSources
+     */
+    public MarkerStream streamMarkers(MarkerSource source, int batchSize, LoadMarkers callback) {
+        cancelLoadingMarkers();
+
+        markerStream = new MarkerStream(map, source, batchSize, MarkerLoader.DEFAULT_FRAME_BUDGET_NANOS, this::trackMarker, callback);
+
+        markerStream.start();
+
+        return markerStream;
+    }
+
+    /**
+     * add markers of the source while it's read on a background thread
+     *
+     * @param source
+     * @param callback
+     * @return
+     */
+    public MarkerStream streamMarkers(MarkerSource source, LoadMarkers callback) {
+        return streamMarkers(source, MarkerStream.DEFAULT_BATCH_SIZE, callback);
+    }
+
+    /**
+     * add markers of the iterator while it's consumed on a background thread
+     *
+     * @param iterator
      * @param callback
      * @return
      */
-    public Marker addMarker(double lat, double lng, MarkerCallback callback) {
-        return addMarker(new MarkerOptions().position(new LatLng(lat, lng)), callback);
+    public MarkerStream streamMarkers(Iterator<MarkerOptions> iterator, LoadMarkers callback) {
+        return streamMarkers(MarkerSources.fromIterator(iterator), MarkerStream.DEFAULT_BATCH_SIZE, callback);
+    }
+
+    /**
+     * cancel the incremental or streaming loading still in progress
+     */
+    public void cancelLoadingMarkers() {
+        if (markerLoader != null) {
+            markerLoader.cancel();
+
+            markerLoader = null;
+        }
+
+        if (markerStream != null) {
+            markerStream.cancel();
+
+            markerStream = null;
+        }
+    }
+
+    /**
+     * load keyed markers of the source per slippy map tile around the viewport whenever it has
+     * settled, the markers of the visible tiles replace the keyed markers, null stops loading and
+     * removes the keyed markers
+     *
+     * @param source
+     * @return the loader of the source, or null
+     * @see #setMarkers(Collection)
+     */
+    public TileLoader setDataSource(DataSource source) {
+        if (tileLoader != null) {
+            removeViewportChanged(tileLoader);
+            tileLoader.stop();
+
+            tileLoader = null;
+
+            setMarkers(Collections.emptyList());
+        }
+
+        if (source == null) {
+            return null;
+        }
+
+        tileLoader = new TileLoader(source, this::setMarkers);
+
+        whenViewportChanged(tileLoader);
+
+        LatLngBounds bounds = map.getProjection().getVisibleRegion().latLngBounds;
+
+        tileLoader.changed(map, bounds.southwest.latitude, bounds.southwest.longitude, bounds.northeast.latitude, bounds.northeast.longitude, map.getCameraPosition().zoom, true);
+
+        return tileLoader;
+    }
+
+    /**
+     * replace the keyed markers, only changed markers are updated, new markers are added and
+     * missing markers are removed
+     *
+     * @param allOpts
+     */
+    public void setMarkers(Collection<KeyedMarkerOptions> allOpts) {
+        HashMap<Object, KeyedMarker> previous = new HashMap<>(keyedMarkers);
+
+        keyedMarkers.clear();
+
+        int calls = 0;
+
+        for (KeyedMarkerOptions keyedOpts : allOpts) {
+            Object key = keyedOpts.getKey();
+            MarkerOptions opts = keyedOpts.getOptions();
+            // a key repeated in allOpts updates the marker of its first occurrence, the last wins
+            KeyedMarker keyed = keyedMarkers.get(key);
+
+            if (keyed == null) {
+                keyed = previous.remove(key);
+            }
+
+            if (keyed == null) {
+                Marker marker = map.addMarker(opts);
+
+                keyed = new KeyedMarker(marker, opts, keyedOpts.getIconKey(), trackMarker(marker, opts));
+
+                markerKeys.put(marker, key);
+
+                calls++;
+            } else {
+                calls += updateKeyedMarker(keyed, opts, keyedOpts.getIconKey());
+            }
+
+            keyedMarkers.put(key, keyed);
+        }
+
+        for (KeyedMarker keyed : previous.values()) {
+            keyed.marker.remove();
+            untrackMarker(keyed.marker);
+            markerKeys.remove(keyed.marker);
+
+            calls++;
+        }
+
+        if (metrics != null) {
+            metrics.mapCalls(MetricsSink.OP_SET_MARKERS, calls);
+        }
+    }
+
+    private int updateKeyedMarker(KeyedMarker keyed, MarkerOptions opts, Object iconKey) {
+        MarkerOptions old = keyed.opts;
+        Marker marker = keyed.marker;
+        LatLng position = opts.getPosition();
+        int calls = 0;
+
+        if (!position.equals(old.getPosition())) {
+            marker.setPosition(position);
+            calls++;
+
+            moveTrackedMarker(keyed.id, position);
+        }
+
+        boolean sameIcon = iconKey != null && keyed.iconKey != null ? iconKey.equals(keyed.iconKey) : opts.getIcon() == old.getIcon();
+
+        if (!sameIcon) {
+            marker.setIcon(opts.getIcon());
+            calls++;
+        }
+
+        if (opts.getAnchorU() != old.getAnchorU() || opts.getAnchorV() != old.getAnchorV()) {
+            marker.setAnchor(opts.getAnchorU(), opts.getAnchorV());
+            calls++;
+        }
+
+        if (opts.isDraggable() != old.isDraggable()) {
+            marker.setDraggable(opts.isDraggable());
+            calls++;
+        }
+
+        if (opts.isFlat() != old.isFlat()) {
+            marker.setFlat(opts.isFlat());
+            calls++;
+        }
+
+        if (!Objects.equals(opts.getTitle(), old.getTitle())) {
+            marker.setTitle(opts.getTitle());
+            calls++;
+        }
+
+        if (!Objects.equals(opts.getSnippet(), old.getSnippet())) {
+            marker.setSnippet(opts.getSnippet());
+            calls++;
+        }
+
+        if (opts.getAlpha() != old.getAlpha()) {
+            marker.setAlpha(opts.getAlpha());
+            calls++;
+        }
+
+        if (opts.getRotation() != old.getRotation()) {
+            marker.setRotation(opts.getRotation());
+            calls++;
+        }
+
+        if (opts.getZIndex() != old.getZIndex()) {
+            marker.setZIndex(opts.getZIndex());
+            calls++;
+        }
+
+        if (opts.isVisible() != old.isVisible()) {
+            marker.setVisible(opts.isVisible());
+            calls++;
+        }
+
+        keyed.opts = opts;
+        keyed.iconKey = iconKey;
+
+        return calls;
+    }
+
+    /**
+     * return keyed marker
+     *
+     * @param key
+     * @return
+     */
+    public Marker getKeyedMarker(Object key) {
+        KeyedMarker keyed = keyedMarkers.get(key);
+
+        return keyed != null ? keyed.marker : null;
+    }
+
+    /**
+     * return all markers added by the controller, the list is a snapshot in the order of
+     * {@link #getMarker(int)}
+     *
+     * @return
+     * @throws IllegalStateException if virtual markers are enabled
+     */
+    public ArrayList<Marker> getMarkers() {
+        requireTrackedMarkers();
+
+        ArrayList<Marker> result = new ArrayList<>(markerStore.size());
+
+        for (int slot = 0; slot < markerStore.size(); slot++) {
+            result.add(markerStore.valueAt(slot));
+        }
+
+        return result;
+    }
+
+    /**
+     * return specific marker, indexes are in [0, getMarkerCount()), removing a marker moves the
+     * last marker into its index
+     *
+     * @param index
+     * @return
+     * @throws IllegalStateException if virtual markers are enabled
+     * @see #getMarkerById(int)
+     */
+    public Marker getMarker(int index) {
+        requireTrackedMarkers();
+
+        if (index < 0 || index >= markerStore.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + markerStore.size());
+        }
+
+        return markerStore.valueAt(index);
+    }
+
+    public int getMarkerCount() {
+        requireTrackedMarkers();
+
+        return markerStore.size();
+    }
+
+    /**
+     * return the stable id of marker, or -1 if the marker isn't added by the controller
+     *
+     * @param marker
+     * @return
+     * @throws IllegalStateException if virtual markers are enabled
+     */
+    public int getMarkerId(Marker marker) {
+        requireTrackedMarkers();
+
+        Integer id = markerIds.get(marker);
+
+        return id != null ? id : -1;
+    }
+
+    /**
+     * return marker by its stable id
+     *
+     * @param id
+     * @return
+     * @throws IllegalStateException if virtual markers are enabled
+     */
+    public Marker getMarkerById(int id) {
+        requireTrackedMarkers();
+
+        return markerStore.get(id);
+    }
+
+    /**
+     * return the store of markers added by the controller, positions can be iterated by slot
+     * without calling back into the Maps SDK
+     *
+     * @return
+     * @throws IllegalStateException if virtual markers are enabled
+     */
+    public MarkerStore<Marker> getMarkerStore() {
+        requireTrackedMarkers();
+
+        return markerStore;
+    }
+
+    /**
+     * remove marker added by the controller, other overlays are kept
+     *
+     * @param marker
+     * @return false if the marker isn't added by the controller
+     * @throws IllegalStateException if virtual markers are enabled
+     */
+    public boolean removeMarker(Marker marker) {
+        requireTrackedMarkers();
+
+        Integer id = markerIds.get(marker);
+
+        if (id == null) {
+            return false;
+        }
+
+        marker.remove();
+        untrackMarker(marker);
+        removeKeyedMarker(marker);
+
+        if (metrics != null) {
+            metrics.mapCalls(MetricsSink.OP_REMOVE_MARKERS, 1);
+        }
+
+        return true;
+    }
+
+    /**
+     * remove markers added by the controller, other overlays are kept
+     *
+     * @param allMarkers
+     * @return the number of removed markers
+     * @throws IllegalStateException if virtual markers are enabled
+     */
+    public int removeMarkers(Collection<Marker> allMarkers) {
+        requireTrackedMarkers();
+
+        int removed = 0;
+
+        for (Marker marker : allMarkers) {
+            // duplicates are no longer tracked once removed
+            if (!markerIds.containsKey(marker)) {
+                continue;
+            }
+
+            marker.remove();
+            untrackMarker(marker);
+            removeKeyedMarker(marker);
+
+            removed++;
+        }
+
+        if (metrics != null) {
+            metrics.mapCalls(MetricsSink.OP_REMOVE_MARKERS, removed);
+        }
+
+        return removed;
+    }
+
+    /**
+     * remove markers added by the controller which match the predicate, other overlays are kept
+     *
+     * @param predicate
+     * @return the number of removed markers
+     * @throws IllegalStateException if virtual markers are enabled
+     */
+    public int removeMarkers(MarkerPredicate predicate) {
+        requireTrackedMarkers();
+
+        ArrayList<Marker> matched = new ArrayList<>();
+
+        for (int slot = 0; slot < markerStore.size(); slot++) {
+            Marker marker = markerStore.valueAt(slot);
+
+            if (predicate.test(marker)) {
+                matched.add(marker);
+            }
+        }
+
+        return removeMarkers(matched);
+    }
+
+    private void removeKeyedMarker(Marker marker) {
+        Object key = markerKeys.remove(marker);
+
+        if (key != null) {
+            keyedMarkers.remove(key);
+        }
+    }
+
+    /**
+     * clear all markers and all other overlays of the map by GoogleMap#clear(), polylines,
+     * polygons and heatmaps added by {@link #addPolyline(PolylineOptions)},
+     * {@link #addPolygon(PolygonOptions)} and {@link #addHeatmap(double[], double[], int)} are
+     * removed as well
+     *
+     * @see #removeMarkers(Collection)
+     */
+    public void clearMarkers() {
+        cancelLoadingMarkers();
+
+        map.clear();
+
+        if (metrics != null) {
+            metrics.mapCalls(MetricsSink.OP_CLEAR_MARKERS, 1);
+        }
+
+        markerIndex.clear();
+        markerStore.clear();
+        markerIds.clear();
+        keyedMarkers.clear();
+        markerKeys.clear();
+        markerHandlers.clear();
+
+        for (LodOverlay overlay : overlays) {
+            overlay.onMapCleared();
+        }
+
+        overlays.clear();
+
+        for (HeatmapTileProvider heatmap : heatmaps) {
+            heatmap.onMapCleared();
+        }
+
+        heatmaps.clear();
+
+        if (clusterer != null) {
+            clusterer.clear();
+        }
+
+        if (viewportMarkers != null) {
+            viewportMarkers.clear();
+        }
+    }
+
+    /**
+     * return markers inside bounds
+     *
+     * @param bounds
+     * @return
+     * @throws IllegalStateException if virtual markers are enabled
+     */
+    public ArrayList<Marker> queryBounds(LatLngBounds bounds) {
+        requireTrackedMarkers();
+
+        ArrayList<Marker> result = new ArrayList<>();
+
+        markerIndex.queryBounds(bounds.southwest.latitude, bounds.southwest.longitude, bounds.northeast.latitude, bounds.northeast.longitude, result);
+
+        return result;
+    }
+
+    /**
+     * return the k nearest markers, ordered by distance
+     *
+     * @param latLng
+     * @param k
+     * @return
+     * @throws IllegalStateException if virtual markers are enabled
+     */
+    public ArrayList<Marker> nearest(LatLng latLng, int k) {
+        requireTrackedMarkers();
+
+        ArrayList<Marker> result = new ArrayList<>(k);
+
+        markerIndex.nearest(latLng.latitude, latLng.longitude, k, result);
+
+        return result;
+    }
+
+    /**
+     * return markers within radius
+     *
+     * @param latLng
+     * @param meters
+     * @return
+     */
+    public ArrayList<Marker> withinRadius(LatLng latLng, double meters) {
+        ArrayList<Marker> result = new ArrayList<>();
+
+        markerIndex.withinRadius(latLng.latitude, latLng.longitude, meters, result);
+
+        return result;
     }
 
     /**
-     * add all markers to map
+     * enable or disable marker clustering for {@link #addMarkers(ArrayList)}
      *
-     * @param allOpts
-     * @param callback
+     * @param enabled
      */
-    public void addMarkers(ArrayList<MarkerOptions> allOpts, MarkerCallback callback) {
-        if (markers == null) {
-            markers = new ArrayList<>();
+    public void setClusteringEnabled(boolean enabled) {
+        if (enabled && clusterer == null) {
+            clusterer = new MarkerClusterer(map);
+
+            setupCameraIdleListener();
+        } else if (!enabled && clusterer != null) {
+            clusterer.destroy();
+
+            clusterer = null;
         }
+    }
+
+    /**
+     * enable or disable virtual markers, markers are only materialized inside the visible region
+     * plus a margin, materialized markers come and go with the viewport, so they have no stable id
+     * and the methods which look up, query or remove markers added by the controller throw
+     * IllegalStateException while virtual markers are enabled
+     *
+     * @param enabled
+     */
+    public void setVirtualMarkersEnabled(boolean enabled) {
+        if (enabled && viewportMarkers == null) {
+            viewportMarkers = new ViewportMarkers(map);
 
-        for (MarkerOptions opts : allOpts) {
-            Marker marker = map.addMarker(opts);
+            viewportMarkers.onCameraIdle();
 
-            markers.add(marker);
+            setupCameraIdleListener();
+        } else if (!enabled && viewportMarkers != null) {
+            viewportMarkers.clear();
 
-            if (callback != null) {
-                callback.invokedMarker(map, marker);
-            }
+            viewportMarkers = null;
         }
     }
 
     /**
-     * add all markers to map
+     * return the virtual markers, or null if virtual markers are disabled
      *
-     * @param allOpts
+     * @return
      */
-    public void addMarkers(ArrayList<MarkerOptions> allOpts) {
-        addMarkers(allOpts, null);
+    public ViewportMarkers getViewportMarkers() {
+        return viewportMarkers;
     }
 
     /**
-     * return all markers
+     * return the marker clusterer, or null if clustering is disabled
      *
      * @return
      */
-    public ArrayList<Marker> getMarkers() {
-        return markers;
+    public MarkerClusterer getClusterer() {
+        return clusterer;
     }
 
     /**
-     * return specific marker
+     * add polyline to map, simplified per zoom level and clipped to the visible region
      *
-     * @param index
+     * @param opts
      * @return
      */
-    public Marker getMarker(int index) {
-        return markers.get(index);
+    public LodOverlay addPolyline(PolylineOptions opts) {
+        LodOverlay overlay = new LodOverlay(map, opts);
+
+        overlays.add(overlay);
+
+        setupCameraIdleListener();
+
+        return overlay;
     }
 
     /**
-     * clear all markers
+     * add polygon to map, simplified per zoom level and clipped to the visible region, holes are
+     * not supported
+     *
+     * @param opts
+     * @return
      */
-    public void clearMarkers() {
-        map.clear();
+    public LodOverlay addPolygon(PolygonOptions opts) {
+        LodOverlay overlay = new LodOverlay(map, opts);
 
-        if (markers != null) {
-            markers.clear();
-        }
+        overlays.add(overlay);
+
+        setupCameraIdleListener();
+
+        return overlay;
+    }
+
+    /**
+     * remove polyline or polygon from map
+     *
+     * @param overlay
+     */
+    public void removeOverlay(LodOverlay overlay) {
+        overlay.remove();
+
+        overlays.remove(overlay);
+    }
+
+    /**
+     * add density heatmap of the points to map, use it when there are too many points for
+     * markers
+     *
+     * @param lats
+     * @param lngs
+     * @param size
+     * @return
+     * @throws IllegalArgumentException if size is above the points supported by
+     *                                  {@link HeatmapTileProvider#setData(double[], double[], int)}
+     */
+    public HeatmapTileProvider addHeatmap(double[] lats, double[] lngs, int size) {
+        HeatmapTileProvider provider = new HeatmapTileProvider();
+
+        // the data is checked before the overlay is added
+        provider.setData(lats, lngs, size);
+        provider.setOverlay(map.addTileOverlay(new TileOverlayOptions().tileProvider(provider)));
+
+        heatmaps.add(provider);
+
+        return provider;
+    }
+
+    /**
+     * remove heatmap from map and release its workers
+     *
+     * @param heatmap
+     */
+    public void removeHeatmap(HeatmapTileProvider heatmap) {
+        heatmap.remove();
+
+        heatmaps.remove(heatmap);
     }
 
     /**
@@ -965,16 +2093,13 @@ public class MapController {
      * @param callback
      */
     public void find(String location, FindResult callback) {
-        Geocoder geocoder = new Geocoder(context);
-        ArrayList<Address> addresses = new ArrayList<>();
+        long start = metrics != null ? System.nanoTime() : 0;
 
-        try {
-            addresses = (ArrayList<Address>) geocoder.getFromLocationName(location, 5);
-        } catch (IOException e) {
-            Log.e(TAG, e.getMessage());
-        }
+        findCallback(callback, geocode(location));
 
-        findCallback(callback, addresses);
+        if (metrics != null) {
+            metrics.latency(MetricsSink.LATENCY_FIND, System.nanoTime() - start);
+        }
     }
 
     /**
@@ -987,56 +2112,366 @@ public class MapController {
     }
 
     /**
-     * find specific location
+     * find specific location on a background thread, identical queries in flight share one
+     * lookup and the callback is invoked on the main thread
      *
      * @param location
      * @param callback
+     * @return
      */
-    public void findAsync(final String location, final FindResult callback) {
-        new AsyncTask<Void, Void, Void>() {
-            private ProgressDialog dialog;
-            private ArrayList<Address> addresses;
+    public FindTask findAsync(final String location, final FindResult callback) {
+        final long start = metrics != null ? System.nanoTime() : 0;
 
-            @Override
-            protected void onPreExecute() {
-                dialog = new ProgressDialog(context);
+        return GeocodeExecutor.getInstance().submit(GeocodeCache.normalize(location), () -> geocode(location), findListener(callback, MetricsSink.LATENCY_FIND_ASYNC, start));
+    }
+
+    /**
+     * find specific location on a background thread
+     *
+     * @param location
+     * @return
+     */
+    public FindTask findAsync(String location) {
+        return findAsync(location, null);
+    }
+
+    /**
+     * find all locations on the geocoding threads, equivalent queries are looked up once and a
+     * query which isn't resolved within timeoutMillis after its lookup starts has no addresses,
+     * the results are in the order of the locations and the callback is invoked on the main thread
+     * once all are done, without callback markers of all addresses are added in one batch and the
+     * camera is moved to their bounds once
+     *
+     * @param locations
+     * @param timeoutMillis
+     * @param callback
+     * @return
+     */
+    public FindAllTask findAll(List<String> locations, long timeoutMillis, final FindAllResult callback) {
+        final long start = metrics != null ? System.nanoTime() : 0;
+        FindAllTask task = new FindAllTask(locations, timeoutMillis, this::geocode, results -> {
+            if (callback != null) {
+                callback.found(map, results);
+            } else {
+                findAllCallback(results);
+            }
 
-                dialog.setMessage("Loading...");
-                dialog.setCancelable(false);
-                dialog.show();
+            if (metrics != null && start != 0) {
+                metrics.latency(MetricsSink.LATENCY_FIND_ALL, System.nanoTime() - start);
             }
+        });
+
+        task.start();
+
+        return task;
+    }
+
+    /**
+     * find all locations on the geocoding threads
+     *
+     * @param locations
+     * @param callback
+     * @return
+     */
+    public FindAllTask findAll(List<String> locations, FindAllResult callback) {
+        return findAll(locations, FindAllTask.DEFAULT_TIMEOUT_MILLIS, callback);
+    }
 
+    /**
+     * find all locations on the geocoding threads, add markers of all addresses and move the
+     * camera to their bounds
+     *
+     * @param locations
+     * @return
+     */
+    public FindAllTask findAll(List<String> locations) {
+        return findAll(locations, FindAllTask.DEFAULT_TIMEOUT_MILLIS, null);
+    }
+
+    /**
+     * find addresses at the location on a background thread, the location is snapped to the
+     * center of its grid cell, so all locations of a cell share one lookup and one cache entry,
+     * the callback is invoked on the main thread, without callback markers of the addresses are
+     * added and the camera animates to the first one
+     *
+     * @param latLng
+     * @param callback
+     * @return
+     * @see #setAddressCellSize(double)
+     */
+    public FindTask findAddress(LatLng latLng, final FindResult callback) {
+        double cellLat = addressCellMeters / SpatialIndex.METERS_PER_DEGREE;
+        long row = (long) Math.floor(latLng.latitude / cellLat);
+        final double lat = Math.max(-90, Math.min(90, (row + 0.5) * cellLat));
+        double cellLng = Math.min(360, cellLat / Math.max(Math.cos(Math.toRadians(lat)), 1e-6));
+        long column = (long) Math.floor((latLng.longitude + 180) / cellLng);
+        final double lng = Math.min(180, (column + 0.5) * cellLng - 180);
+        // normalized queries are lower case, so these keys can't collide with find
+        final String key = "R" + addressCellMeters + ":" + row + ":" + column;
+        final long start = metrics != null ? System.nanoTime() : 0;
+
+        return GeocodeExecutor.getInstance().submit(key, () -> reverseGeocode(key, lat, lng), findListener(callback, MetricsSink.LATENCY_FIND_ADDRESS, start));
+    }
+
+    private GeocodeExecutor.Listener findListener(final FindResult callback, final int latency, final long start) {
+        return new GeocodeExecutor.Listener() {
             @Override
-            protected Void doInBackground(Void... params) {
-                Geocoder geocoder = new Geocoder(context);
+            public void done(ArrayList<Address> addresses) {
+                findCallback(callback, addresses);
 
-                try {
-                    addresses = (ArrayList<Address>) geocoder.getFromLocationName(location, 5);
-                } catch (IOException e) {
-                    Log.e(TAG, e.getMessage());
+                if (metrics != null && start != 0) {
+                    metrics.latency(latency, System.nanoTime() - start);
                 }
-
-                return null;
             }
 
             @Override
-            protected void onPostExecute(Void result) {
-                if (dialog.isShowing()) {
-                    dialog.dismiss();
+            public void rejected() {
+                if (callback != null) {
+                    callback.rejected(map);
                 }
-
-                findCallback(callback, addresses);
             }
-        }.execute();
+        };
     }
 
     /**
-     * find specific location
+     * set the size of the grid cells of findAddress, a larger cell means more cache hits but
+     * coarser addresses
      *
-     * @param location
+     * @param meters
+     */
+    public void setAddressCellSize(double meters) {
+        if (meters <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive: " + meters);
+        }
+
+        addressCellMeters = meters;
+    }
+
+    public double getAddressCellSize() {
+        return addressCellMeters;
+    }
+
+    private void requireTrackedMarkers() {
+        if (viewportMarkers != null) {
+            throw new IllegalStateException("Markers aren't tracked while virtual markers are enabled");
+        }
+    }
+
+    private int trackMarker(Marker marker, MarkerOptions opts) {
+        LatLng position = opts.getPosition();
+        int id = markerStore.add(position.latitude, position.longitude, 0, marker);
+
+        markerStore.setLink(id, markerIndex.add(position.latitude, position.longitude, marker));
+        markerIds.put(marker, id);
+
+        return id;
+    }
+
+    private void moveTrackedMarker(int id, LatLng position) {
+        Marker marker = markerStore.get(id);
+
+        markerIndex.remove(markerStore.getLink(id));
+        markerStore.setPosition(id, position.latitude, position.longitude);
+        markerStore.setLink(id, markerIndex.add(position.latitude, position.longitude, marker));
+    }
+
+    /**
+     * forget marker in the store, the spatial index and its handlers
+     */
+    private void untrackMarker(Marker marker) {
+        Integer id = markerIds.remove(marker);
+
+        markerHandlers.remove(marker);
+
+        if (id != null) {
+            markerIndex.remove(markerStore.getLink(id));
+            markerStore.remove(id);
+        }
+    }
+
+    private void setupCameraIdleListener() {
+        if (!cameraIdleListenerInstalled) {
+            map.setOnCameraIdleListener(this::onCameraIdle);
+
+            cameraIdleListenerInstalled = true;
+        }
+    }
+
+    private ViewportEvents getViewportEvents() {
+        if (viewportEvents == null) {
+            viewportEvents = new ViewportEvents(map);
+
+            setupCameraIdleListener();
+
+            map.setOnCameraMoveStartedListener(reason -> viewportEvents.onCameraMoveStarted());
+        }
+
+        return viewportEvents;
+    }
+
+    private CameraScheduler getCameraScheduler() {
+        if (cameraScheduler == null) {
+            cameraScheduler = new CameraScheduler(map);
+
+            cameraScheduler.setMetrics(metrics);
+
+            setupCameraIdleListener();
+        }
+
+        return cameraScheduler;
+    }
+
+    private void onCameraIdle() {
+        if (cameraScheduler != null) {
+            cameraScheduler.onCameraIdle();
+        }
+
+        if (clusterer != null) {
+            clusterer.onCameraIdle();
+        }
+
+        if (viewportMarkers != null) {
+            viewportMarkers.onCameraIdle();
+        }
+
+        for (LodOverlay overlay : overlays) {
+            overlay.onCameraIdle();
+        }
+
+        if (viewportEvents != null) {
+            viewportEvents.onCameraIdle();
+        }
+    }
+
+    /**
+     * set the sink receiving counts of GoogleMap calls, latencies and location fix metrics, null
+     * disables recording, which is the default
+     *
+     * @param sink
+     * @see HistogramMetricsSink
+     */
+    public void setMetricsSink(MetricsSink sink) {
+        metrics = sink;
+        lastFixNanos = 0;
+
+        if (cameraScheduler != null) {
+            cameraScheduler.setMetrics(sink);
+        }
+    }
+
+    public MetricsSink getMetricsSink() {
+        return metrics;
+    }
+
+    /**
+     * set the geocoding cache used by find, findAsync and findAddress
+     *
+     * @param cache
+     */
+    public synchronized void setGeocodeCache(GeocodeCache cache) {
+        geocodeCache = cache;
+    }
+
+    /**
+     * return the geocoding cache, it's created on first use
+     *
+     * @return
+     */
+    public synchronized GeocodeCache getGeocodeCache() {
+        if (geocodeCache == null) {
+            geocodeCache = new GeocodeCache(new File(context.getCacheDir(), "mapcontroller-geocode.cache"), GeocodeCache.DEFAULT_MAX_SIZE, GeocodeCache.DEFAULT_TTL_MILLIS);
+        }
+
+        return geocodeCache;
+    }
+
+    private ArrayList<Address> geocode(String location) {
+        GeocodeCache cache = getGeocodeCache();
+        String key = GeocodeCache.normalize(location);
+        ArrayList<Address> addresses = cache.get(key);
+
+        if (addresses != null) {
+            return addresses;
+        }
+
+        try {
+            addresses = toArrayList(new Geocoder(context).getFromLocationName(location, 5));
+
+            cache.put(key, addresses);
+        } catch (IOException e) {
+            Log.e(TAG, e.getMessage());
+
+            addresses = new ArrayList<>();
+        }
+
+        return addresses;
+    }
+
+    /**
+     * the geocoder returns null instead of an empty list when nothing is found
      */
-    public void findAsync(String location) {
-        findAsync(location, null);
+    private static ArrayList<Address> toArrayList(List<Address> addresses) {
+        return addresses != null ? new ArrayList<>(addresses) : new ArrayList<>();
+    }
+
+    private ArrayList<Address> reverseGeocode(String key, double lat, double lng) {
+        GeocodeCache cache = getGeocodeCache();
+        ArrayList<Address> addresses = cache.get(key);
+
+        if (addresses != null) {
+            return addresses;
+        }
+
+        try {
+            addresses = toArrayList(new Geocoder(context).getFromLocation(lat, lng, 5));
+
+            cache.put(key, addresses);
+        } catch (IOException e) {
+            Log.e(TAG, e.getMessage());
+
+            addresses = new ArrayList<>();
+        }
+
+        return addresses;
+    }
+
+    private void findAllCallback(ArrayList<ArrayList<Address>> results) {
+        ArrayList<MarkerOptions> allOpts = new ArrayList<>();
+        Set<ArrayList<Address>> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        double south = 90;
+        double west = 180;
+        double north = -90;
+        double east = -180;
+
+        for (ArrayList<Address> addresses : results) {
+            // duplicated queries share their addresses
+            if (!seen.add(addresses)) {
+                continue;
+            }
+
+            for (Address address : addresses) {
+                LatLng latLng = new LatLng(address.getLatitude(), address.getLongitude());
+
+                allOpts.add(new MarkerOptions().position(latLng).title(address.toString()).snippet(latLng.toString()));
+
+                south = Math.min(south, latLng.latitude);
+                west = Math.min(west, latLng.longitude);
+                north = Math.max(north, latLng.latitude);
+                east = Math.max(east, latLng.longitude);
+            }
+        }
+
+        if (allOpts.isEmpty()) {
+            return;
+        }
+
+        addMarkers(allOpts);
+
+        if (allOpts.size() == 1) {
+            animateTo(allOpts.get(0).getPosition());
+        } else {
+            setBounds(south, west, north, east, FIND_ALL_PADDING, true);
+        }
     }
 
     private void findCallback(FindResult callback, ArrayList<Address> addresses) {
@@ -1054,10 +2489,33 @@ public class MapController {
                 addMarker(opts);
             }
 
-            animateTo(new LatLng(addresses.get(0).getLatitude(), addresses.get(0).getLongitude()));
+            if (!addresses.isEmpty()) {
+                animateTo(new LatLng(addresses.get(0).getLatitude(), addresses.get(0).getLongitude()));
+            }
+        }
+    }
+
+    private static class KeyedMarker {
+        final Marker marker;
+        MarkerOptions opts;
+        Object iconKey;
+        final int id;
+
+        KeyedMarker(Marker marker, MarkerOptions opts, Object iconKey, int id) {
+            this.marker = marker;
+            this.opts = opts;
+            this.iconKey = iconKey;
+            this.id = id;
         }
     }
 
+    private static class MarkerHandler {
+        MarkerCallback click;
+        MarkerCallback infoWindowClick;
+        MarkerDrag drag;
+        Object payload;
+    }
+
     public enum MapType {
         MAP_TYPE_NONE, MAP_TYPE_NORMAL, MAP_TYPE_SATELLITE, MAP_TYPE_TERRAIN, MAP_TYPE_HYBRID
     }
@@ -1074,6 +2532,10 @@ public class MapController {
         void changed(GoogleMap map, Location location);
     }
 
+    public interface ChangeMyLocations {
+        void changed(GoogleMap map, List<Location> locations);
+    }
+
     public interface ChangePosition {
         void changed(GoogleMap map, CameraPosition position);
     }
@@ -1082,10 +2544,27 @@ public class MapController {
         void clicked(GoogleMap map, LatLng latLng);
     }
 
+    public interface ViewportChanged {
+        /**
+         * @param map
+         * @param south
+         * @param west
+         * @param north
+         * @param east
+         * @param zoom
+         * @param zoomLevelChanged true if the integer zoom level differs from the previous callback
+         */
+        void changed(GoogleMap map, double south, double west, double north, double east, float zoom, boolean zoomLevelChanged);
+    }
+
     public interface MarkerCallback {
         void invokedMarker(GoogleMap map, Marker marker);
     }
 
+    public interface MarkerPredicate {
+        boolean test(Marker marker);
+    }
+
     public interface MarkerDrag {
         void markerDragStart(GoogleMap map, Marker marker);
 
@@ -1094,7 +2573,46 @@ public class MapController {
         void markerDragEnd(GoogleMap map, Marker marker);
     }
 
+    public interface LoadMarkers {
+        /**
+         * @param map
+         * @param loaded
+         * @param total  -1 if it's unknown yet
+         */
+        void progress(GoogleMap map, int loaded, int total);
+
+        void completed(GoogleMap map, int total);
+
+        /**
+         * called instead of completed when reading a streamed source fails or the source throws,
+         * markers already added are kept
+         *
+         * @param map
+         * @param loaded
+         * @param error
+         */
+        default void failed(GoogleMap map, int loaded, Exception error) {
+        }
+    }
+
     public interface FindResult {
         void found(GoogleMap map, ArrayList<Address> addresses);
+
+        /**
+         * called instead of found when an asynchronous lookup is rejected because too many lookups
+         * are queued, it can be retried later
+         *
+         * @param map
+         */
+        default void rejected(GoogleMap map) {
+        }
+    }
+
+    public interface FindAllResult {
+        /**
+         * @param map
+         * @param results addresses of each location, in the order of the locations
+         */
+        void found(GoogleMap map, ArrayList<ArrayList<Address>> results);
     }
 }
\ No newline at end of file
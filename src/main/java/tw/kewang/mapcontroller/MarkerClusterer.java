@@ -0,0 +1,454 @@
+package tw.kewang.mapcontroller;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * group markers into grid clusters per zoom level
+ *
+ * @author kewang
+ */
+public class MarkerClusterer {
+    private static final int DEFAULT_GRID_SIZE = 100;
+    private static final int DEFAULT_MAX_CLUSTER_ZOOM = 17;
+    private static final int[] COUNT_THRESHOLDS = {10, 20, 50, 100, 200, 500, 1000};
+    private static final int[] COUNT_COLORS = {0xff0099cc, 0xff669900, 0xffff8800, 0xffcc0000, 0xff9933cc};
+    private static final int NO_ZOOM = Integer.MIN_VALUE;
+
+    private final GoogleMap map;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "MarkerClusterer");
+
+        thread.setDaemon(true);
+
+        return thread;
+    });
+    private final HashMap<Integer, Clusters> computed = new HashMap<>();
+    private final HashMap<Long, Rendered> rendered = new HashMap<>();
+    private final HashMap<String, BitmapDescriptor> icons = new HashMap<>();
+    private final MarkerItems items = new MarkerItems();
+    private final Choreographer.FrameCallback recomputeFrame = frameTimeNanos -> {
+        recomputeScheduled = false;
+
+        recompute();
+    };
+    private double[] lats = new double[16];
+    private double[] lngs = new double[16];
+    private int size;
+    private int gridSize = DEFAULT_GRID_SIZE;
+    private int maxClusterZoom = DEFAULT_MAX_CLUSTER_ZOOM;
+    private int zoomBucket = NO_ZOOM;
+    private int generation;
+    private boolean recomputeScheduled;
+
+    public MarkerClusterer(GoogleMap map) {
+        this.map = map;
+    }
+
+    /**
+     * set the grid cell size in world pixels
+     *
+     * @param gridSize
+     */
+    public void setGridSize(int gridSize) {
+        this.gridSize = gridSize;
+
+        invalidate();
+    }
+
+    /**
+     * set the zoom level above which markers are never clustered
+     *
+     * @param maxClusterZoom
+     */
+    public void setMaxClusterZoom(int maxClusterZoom) {
+        this.maxClusterZoom = maxClusterZoom;
+
+        invalidate();
+    }
+
+    /**
+     * add items to be clustered, items added within one frame are clustered once in the next frame
+     *
+     * @param allOpts
+     */
+    public void addItems(Collection<MarkerOptions> allOpts) {
+        ensureCapacity(size + allOpts.size());
+
+        for (MarkerOptions opts : allOpts) {
+            LatLng position = opts.getPosition();
+
+            items.add(opts);
+            lats[size] = position.latitude;
+            lngs[size] = position.longitude;
+            size++;
+        }
+
+        invalidate();
+    }
+
+    /**
+     * add records of the POI file to be clustered, a record is only read into marker options when
+     * it's shown as a single marker
+     *
+     * @param file
+     */
+    public void addItems(PoiFile file) {
+        int count = file.size();
+
+        ensureCapacity(size + count);
+
+        for (int i = 0; i < count; i++) {
+            lats[size] = file.getLatitude(i);
+            lngs[size] = file.getLongitude(i);
+            size++;
+        }
+
+        items.addAll(file);
+
+        invalidate();
+    }
+
+    /**
+     * add item to be clustered
+     *
+     * @param opts
+     */
+    public void addItem(MarkerOptions opts) {
+        ArrayList<MarkerOptions> allOpts = new ArrayList<>(1);
+
+        allOpts.add(opts);
+
+        addItems(allOpts);
+    }
+
+    /**
+     * return the number of clustered items
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * remove all items and their cluster markers
+     */
+    public void clear() {
+        generation++;
+
+        items.clear();
+        lats = new double[16];
+        lngs = new double[16];
+        size = 0;
+
+        computed.clear();
+
+        for (Rendered r : rendered.values()) {
+            r.marker.remove();
+        }
+
+        rendered.clear();
+    }
+
+    /**
+     * recompute clusters if the zoom bucket changed, must be called when the camera is idle
+     */
+    public void onCameraIdle() {
+        int bucket = toZoomBucket(map.getCameraPosition().zoom);
+
+        if (bucket != zoomBucket) {
+            zoomBucket = bucket;
+
+            recompute();
+        }
+    }
+
+    /**
+     * release the worker thread, the clusterer can't be used afterwards
+     */
+    public void destroy() {
+        clear();
+
+        if (recomputeScheduled) {
+            recomputeScheduled = false;
+
+            Choreographer.getInstance().removeFrameCallback(recomputeFrame);
+        }
+
+        executor.shutdownNow();
+    }
+
+    private void invalidate() {
+        computed.clear();
+
+        if (zoomBucket == NO_ZOOM) {
+            zoomBucket = toZoomBucket(map.getCameraPosition().zoom);
+        }
+
+        // every recompute clusters all items, so a loop of addItem must not recompute per item
+        if (!recomputeScheduled) {
+            recomputeScheduled = true;
+
+            Choreographer.getInstance().postFrameCallback(recomputeFrame);
+        }
+    }
+
+    private int toZoomBucket(float zoom) {
+        return Math.min((int) zoom, maxClusterZoom + 1);
+    }
+
+    private void recompute() {
+        final int bucket = zoomBucket;
+        final int token = ++generation;
+        Clusters cached = computed.get(bucket);
+
+        if (cached != null) {
+            apply(cached);
+
+            return;
+        }
+
+        final double[] snapshotLats = lats;
+        final double[] snapshotLngs = lngs;
+        final int snapshotSize = size;
+        final int snapshotGridSize = gridSize;
+        final boolean clustering = bucket <= maxClusterZoom;
+
+        executor.execute(() -> {
+            Clusters clusters = clustering
+                    ? cluster(snapshotLats, snapshotLngs, snapshotSize, bucket, snapshotGridSize)
+                    : singletons(snapshotLats, snapshotLngs, snapshotSize);
+
+            mainHandler.post(() -> {
+                if (token != generation) {
+                    return;
+                }
+
+                computed.put(bucket, clusters);
+
+                apply(clusters);
+            });
+        });
+    }
+
+    private void apply(Clusters clusters) {
+        HashMap<Long, Rendered> previous = new HashMap<>(rendered);
+
+        rendered.clear();
+
+        for (int i = 0; i < clusters.size; i++) {
+            long key = clusters.keys[i];
+            int count = clusters.counts[i];
+            Rendered r = previous.remove(key);
+
+            if (r == null) {
+                Marker marker;
+
+                if (count == 1) {
+                    marker = map.addMarker(items.get(clusters.firstIndexes[i]));
+                } else {
+                    marker = map.addMarker(new MarkerOptions()
+                            .position(new LatLng(clusters.lats[i], clusters.lngs[i]))
+                            .icon(getIcon(count))
+                            .anchor(0.5f, 0.5f));
+                }
+
+                r = new Rendered(marker, count, clusters.lats[i], clusters.lngs[i]);
+            } else if (count > 1 && (r.count != count || r.lat != clusters.lats[i] || r.lng != clusters.lngs[i])) {
+                r.marker.setPosition(new LatLng(clusters.lats[i], clusters.lngs[i]));
+
+                if (r.count != count) {
+                    r.marker.setIcon(getIcon(count));
+                }
+
+                r.count = count;
+                r.lat = clusters.lats[i];
+                r.lng = clusters.lngs[i];
+            }
+
+            rendered.put(key, r);
+        }
+
+        for (Rendered r : previous.values()) {
+            r.marker.remove();
+        }
+    }
+
+    private BitmapDescriptor getIcon(int count) {
+        int level = -1;
+
+        for (int i = 0; i < COUNT_THRESHOLDS.length && count >= COUNT_THRESHOLDS[i]; i++) {
+            level = i;
+        }
+
+        String label = level < 0 ? String.valueOf(count) : COUNT_THRESHOLDS[level] + "+";
+        BitmapDescriptor icon = icons.get(label);
+
+        if (icon == null) {
+            int color = COUNT_COLORS[Math.min(Math.max(level, 0) / 2, COUNT_COLORS.length - 1)];
+
+            icon = BitmapDescriptorFactory.fromBitmap(renderIcon(label, color));
+
+            icons.put(label, icon);
+        }
+
+        return icon;
+    }
+
+    private static Bitmap renderIcon(String label, int color) {
+        float density = Resources.getSystem().getDisplayMetrics().density;
+        int size = (int) (40 * density);
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+        paint.setColor(Color.WHITE);
+        canvas.drawCircle(size / 2f, size / 2f, size / 2f, paint);
+
+        paint.setColor(color);
+        canvas.drawCircle(size / 2f, size / 2f, size / 2f - 3 * density, paint);
+
+        paint.setColor(Color.WHITE);
+        paint.setTextSize(14 * density);
+        paint.setTextAlign(Paint.Align.CENTER);
+        paint.setFakeBoldText(true);
+        canvas.drawText(label, size / 2f, size / 2f - (paint.descent() + paint.ascent()) / 2, paint);
+
+        return bitmap;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > lats.length) {
+            int newCapacity = Math.max(capacity, lats.length * 2);
+
+            lats = Arrays.copyOf(lats, newCapacity);
+            lngs = Arrays.copyOf(lngs, newCapacity);
+        }
+    }
+
+    /**
+     * project to world pixel coordinates and bucket into grid cells, the cluster position is the
+     * centroid of its items
+     */
+    static Clusters cluster(double[] lats, double[] lngs, int size, int zoom, int gridSize) {
+        double worldSize = 256 * Math.pow(2, zoom);
+        HashMap<Long, int[]> cells = new HashMap<>();
+        Clusters clusters = new Clusters(Math.min(size, 1024));
+
+        for (int i = 0; i < size; i++) {
+            long cellX = (long) (WebMercator.x(lngs[i]) * worldSize / gridSize);
+            long cellY = (long) (WebMercator.y(lats[i]) * worldSize / gridSize);
+            long key = (cellX << 32) | (cellY & 0xffffffffL);
+            int[] slot = cells.get(key);
+
+            if (slot == null) {
+                slot = new int[]{clusters.size};
+
+                cells.put(key, slot);
+                clusters.append(key, i);
+            }
+
+            int index = slot[0];
+
+            clusters.counts[index]++;
+            clusters.lats[index] += lats[i];
+            clusters.lngs[index] += lngs[i];
+        }
+
+        for (int i = 0; i < clusters.size; i++) {
+            int count = clusters.counts[i];
+
+            clusters.lats[i] /= count;
+            clusters.lngs[i] /= count;
+
+            if (count == 1) {
+                clusters.keys[i] = ~(long) clusters.firstIndexes[i];
+            }
+        }
+
+        return clusters;
+    }
+
+    static Clusters singletons(double[] lats, double[] lngs, int size) {
+        Clusters clusters = new Clusters(Math.max(size, 1));
+
+        for (int i = 0; i < size; i++) {
+            clusters.append(~(long) i, i);
+
+            clusters.counts[i] = 1;
+            clusters.lats[i] = lats[i];
+            clusters.lngs[i] = lngs[i];
+        }
+
+        return clusters;
+    }
+
+    static class Clusters {
+        long[] keys;
+        int[] counts;
+        int[] firstIndexes;
+        double[] lats;
+        double[] lngs;
+        int size;
+
+        Clusters(int capacity) {
+            keys = new long[capacity];
+            counts = new int[capacity];
+            firstIndexes = new int[capacity];
+            lats = new double[capacity];
+            lngs = new double[capacity];
+        }
+
+        void append(long key, int firstIndex) {
+            if (size == keys.length) {
+                int newCapacity = size * 2;
+
+                keys = Arrays.copyOf(keys, newCapacity);
+                counts = Arrays.copyOf(counts, newCapacity);
+                firstIndexes = Arrays.copyOf(firstIndexes, newCapacity);
+                lats = Arrays.copyOf(lats, newCapacity);
+                lngs = Arrays.copyOf(lngs, newCapacity);
+            }
+
+            keys[size] = key;
+            firstIndexes[size] = firstIndex;
+            size++;
+        }
+    }
+
+    private static class Rendered {
+        final Marker marker;
+        int count;
+        double lat;
+        double lng;
+
+        Rendered(Marker marker, int count, double lat, double lng) {
+            this.marker = marker;
+            this.count = count;
+            this.lat = lat;
+            this.lng = lng;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package tw.kewang.mapcontroller;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * render badge icons on a background thread and cache them by style
+ *
+ * @author kewang
+ */
+public class MarkerIconFactory {
+    static final int DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "MarkerIconFactory");
+
+        thread.setDaemon(true);
+
+        return thread;
+    });
+    private final HashMap<String, ArrayList<IconReady>> pending = new HashMap<>();
+    private final LruCache<String, Icon> cache;
+
+    public MarkerIconFactory() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxBytes the maximum bytes of cached bitmaps
+     */
+    public MarkerIconFactory(int maxBytes) {
+        cache = new LruCache<String, Icon>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Icon icon) {
+                return icon.bytes;
+            }
+        };
+    }
+
+    /**
+     * return cached icon, or null if it's not rendered yet
+     *
+     * @param style
+     * @return
+     */
+    public BitmapDescriptor getCached(IconStyle style) {
+        Icon icon = cache.get(style.getKey());
+
+        return icon != null ? icon.descriptor : null;
+    }
+
+    /**
+     * load icon, the callback is invoked on the main thread, immediately if the icon is cached
+     *
+     * @param style
+     * @param callback
+     */
+    public void load(IconStyle style, IconReady callback) {
+        String key = style.getKey();
+        Icon icon = cache.get(key);
+
+        if (icon != null) {
+            callback.ready(icon.descriptor);
+
+            return;
+        }
+
+        ArrayList<IconReady> callbacks = pending.get(key);
+
+        if (callbacks != null) {
+            callbacks.add(callback);
+
+            return;
+        }
+
+        callbacks = new ArrayList<>();
+
+        callbacks.add(callback);
+        pending.put(key, callbacks);
+
+        executor.execute(() -> {
+            Bitmap bitmap = render(style);
+            Icon rendered = new Icon(BitmapDescriptorFactory.fromBitmap(bitmap), bitmap.getByteCount());
+
+            mainHandler.post(() -> {
+                cache.put(key, rendered);
+
+                for (IconReady ready : pending.remove(key)) {
+                    ready.ready(rendered.descriptor);
+                }
+            });
+        });
+    }
+
+    public void evictAll() {
+        cache.evictAll();
+    }
+
+    static Bitmap render(IconStyle style) {
+        float density = Resources.getSystem().getDisplayMetrics().density;
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+        paint.setTextSize(style.getTextSize() * density);
+        paint.setTextAlign(Paint.Align.CENTER);
+
+        float padding = style.getPadding() * density;
+        float textHeight = paint.descent() - paint.ascent();
+        int width = (int) Math.ceil(Math.max(paint.measureText(style.getText()), textHeight) + padding * 2);
+        int height = (int) Math.ceil(textHeight + padding * 2);
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        paint.setColor(style.getBackgroundColor());
+        canvas.drawRoundRect(new RectF(0, 0, width, height), height / 2f, height / 2f, paint);
+
+        paint.setColor(style.getTextColor());
+        canvas.drawText(style.getText(), width / 2f, padding - paint.ascent(), paint);
+
+        return bitmap;
+    }
+
+    public interface IconReady {
+        void ready(BitmapDescriptor icon);
+    }
+
+    private static class Icon {
+        final BitmapDescriptor descriptor;
+        final int bytes;
+
+        Icon(BitmapDescriptor descriptor, int bytes) {
+            this.descriptor = descriptor;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package tw.kewang.mapcontroller;
+
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * marker options by index, backed by segments of either options lists or POI files, records of a
+ * POI file are only turned into options when they're requested
+ *
+ * @author kewang
+ */
+final class MarkerItems {
+    private final ArrayList<Object> segments = new ArrayList<>();
+    private int[] starts = new int[4];
+    private int size;
+
+    void add(MarkerOptions opts) {
+        Object last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+
+        if (last instanceof ArrayList) {
+            @SuppressWarnings("unchecked")
+            ArrayList<MarkerOptions> list = (ArrayList<MarkerOptions>) last;
+
+            list.add(opts);
+        } else {
+            ArrayList<MarkerOptions> list = new ArrayList<>();
+
+            list.add(opts);
+            addSegment(list);
+        }
+
+        size++;
+    }
+
+    void addAll(PoiFile file) {
+        if (file.size() == 0) {
+            return;
+        }
+
+        addSegment(file);
+
+        size += file.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    MarkerOptions get(int index) {
+        int segment = segments.size() - 1;
+
+        if (index < starts[segment]) {
+            segment = Arrays.binarySearch(starts, 0, segments.size(), index);
+
+            if (segment < 0) {
+                segment = -segment - 2;
+            }
+        }
+
+        Object items = segments.get(segment);
+        int offset = index - starts[segment];
+
+        return items instanceof PoiFile ? ((PoiFile) items).toMarkerOptions(offset) : ((ArrayList<MarkerOptions>) items).get(offset);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        segments.clear();
+
+        size = 0;
+    }
+
+    private void addSegment(Object items) {
+        if (segments.size() == starts.length) {
+            starts = Arrays.copyOf(starts, starts.length * 2);
+        }
+
+        starts[segments.size()] = size;
+
+        segments.add(items);
+    }
+}
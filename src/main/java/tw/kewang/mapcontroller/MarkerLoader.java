@@ -0,0 +1,119 @@
+package tw.kewang.mapcontroller;
+
+import android.view.Choreographer;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import java.util.List;
+
+/**
+ * add markers in chunks, each frame only spends the frame budget on adding markers
+ *
+ * @author kewang
+ */
+public class MarkerLoader implements Choreographer.FrameCallback {
+    static final long DEFAULT_FRAME_BUDGET_NANOS = 8_000_000L;
+
+    private final GoogleMap map;
+    private final List<MarkerOptions> allOpts;
+    private final long frameBudgetNanos;
+    private final Sink sink;
+    private final MapController.LoadMarkers callback;
+    private int loaded;
+    private boolean cancelled;
+    private boolean finished;
+
+    MarkerLoader(GoogleMap map, List<MarkerOptions> allOpts, long frameBudgetNanos, Sink sink, MapController.LoadMarkers callback) {
+        this.map = map;
+        this.allOpts = allOpts;
+        this.frameBudgetNanos = frameBudgetNanos;
+        this.sink = sink;
+        this.callback = callback;
+    }
+
+    void start() {
+        if (allOpts.isEmpty()) {
+            finished = true;
+
+            if (callback != null) {
+                callback.completed(map, 0);
+            }
+
+            return;
+        }
+
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * cancel the loading, markers already added are kept
+     */
+    public void cancel() {
+        if (!cancelled && !finished) {
+            cancelled = true;
+
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * return the number of markers already added
+     *
+     * @return
+     */
+    public int getLoaded() {
+        return loaded;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (cancelled) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int total = allOpts.size();
+
+        // at least one marker is added per frame, so loading always progresses
+        while (loaded < total) {
+            MarkerOptions opts = allOpts.get(loaded);
+
+            sink.added(map.addMarker(opts), opts);
+
+            loaded++;
+
+            if (System.nanoTime() - start >= frameBudgetNanos) {
+                break;
+            }
+        }
+
+        if (loaded < total) {
+            if (callback != null) {
+                callback.progress(map, loaded, total);
+            }
+
+            Choreographer.getInstance().postFrameCallback(this);
+        } else {
+            finished = true;
+
+            if (callback != null) {
+                callback.progress(map, loaded, total);
+                callback.completed(map, total);
+            }
+        }
+    }
+
+    interface Sink {
+        void added(Marker marker, MarkerOptions opts);
+    }
+}
@@ -0,0 +1,22 @@
+package tw.kewang.mapcontroller;
+
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * pull source of markers, it's read on a background thread
+ *
+ * @author kewang
+ * @see MarkerSources
+ */
+public interface MarkerSource extends Closeable {
+    /**
+     * return next marker, or null when the source is exhausted
+     *
+     * @return
+     * @throws IOException
+     */
+    MarkerOptions next() throws IOException;
+}
@@ -0,0 +1,175 @@
+package tw.kewang.mapcontroller;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * factories of common marker sources
+ *
+ * @author kewang
+ */
+public final class MarkerSources {
+    private MarkerSources() {
+    }
+
+    /**
+     * source of an iterator, the iterator is consumed on a background thread
+     *
+     * @param iterator
+     * @return
+     */
+    public static MarkerSource fromIterator(final Iterator<MarkerOptions> iterator) {
+        return new MarkerSource() {
+            @Override
+            public MarkerOptions next() {
+                return iterator.hasNext() ? iterator.next() : null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * source of CSV lines {@code lat,lng[,title[,snippet]]}, a header line is skipped, fields may
+     * be quoted
+     *
+     * @param in
+     * @return
+     */
+    public static MarkerSource fromCsv(InputStream in) {
+        return new LineSource(in) {
+            @Override
+            MarkerOptions parse(String line, int lineNumber) throws IOException {
+                ArrayList<String> fields = Csv.split(line);
+
+                if (fields.size() < 2) {
+                    throw new IOException("Invalid CSV at line " + lineNumber);
+                }
+
+                double lat;
+                double lng;
+
+                try {
+                    lat = Double.parseDouble(fields.get(0).trim());
+                    lng = Double.parseDouble(fields.get(1).trim());
+                } catch (NumberFormatException e) {
+                    if (lineNumber == 1) {
+                        return null;
+                    }
+
+                    throw new IOException("Invalid CSV at line " + lineNumber);
+                }
+
+                MarkerOptions opts = new MarkerOptions().position(new LatLng(lat, lng));
+
+                if (fields.size() > 2 && !fields.get(2).isEmpty()) {
+                    opts.title(fields.get(2));
+                }
+
+                if (fields.size() > 3 && !fields.get(3).isEmpty()) {
+                    opts.snippet(fields.get(3));
+                }
+
+                return opts;
+            }
+        };
+    }
+
+    /**
+     * source of newline delimited GeoJSON, one Point feature per line, {@code title} or
+     * {@code name} and {@code snippet} or {@code description} properties are used
+     *
+     * @param in
+     * @return
+     */
+    public static MarkerSource fromGeoJson(InputStream in) {
+        return new LineSource(in) {
+            @Override
+            MarkerOptions parse(String line, int lineNumber) throws IOException {
+                try {
+                    JSONObject feature = new JSONObject(line);
+                    JSONObject geometry = feature.getJSONObject("geometry");
+
+                    if (!"Point".equals(geometry.getString("type"))) {
+                        return null;
+                    }
+
+                    JSONArray coordinates = geometry.getJSONArray("coordinates");
+                    MarkerOptions opts = new MarkerOptions().position(new LatLng(coordinates.getDouble(1), coordinates.getDouble(0)));
+                    JSONObject properties = feature.optJSONObject("properties");
+
+                    if (properties != null) {
+                        String title = properties.optString("title", properties.optString("name", null));
+                        String snippet = properties.optString("snippet", properties.optString("description", null));
+
+                        if (title != null) {
+                            opts.title(title);
+                        }
+
+                        if (snippet != null) {
+                            opts.snippet(snippet);
+                        }
+                    }
+
+                    return opts;
+                } catch (JSONException e) {
+                    throw new IOException("Invalid GeoJSON at line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+        };
+    }
+
+    private abstract static class LineSource implements MarkerSource {
+        private final BufferedReader reader;
+        private int lineNumber;
+
+        LineSource(InputStream in) {
+            reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+
+        /**
+         * return marker of the line, or null to skip it
+         */
+        abstract MarkerOptions parse(String line, int lineNumber) throws IOException;
+
+        @Override
+        public MarkerOptions next() throws IOException {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                MarkerOptions opts = parse(line, lineNumber);
+
+                if (opts != null) {
+                    return opts;
+                }
+            }
+
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package tw.kewang.mapcontroller;
+
+import java.util.Arrays;
+
+/**
+ * markers with stable int ids, backed by parallel primitive arrays and an open addressing id to
+ * slot map, get and remove are O(1), removal swaps the last slot into the removed one
+ *
+ * @author kewang
+ */
+public class MarkerStore<T> {
+    private static final int EMPTY = -1;
+
+    private int[] ids = new int[16];
+    private double[] lats = new double[16];
+    private double[] lngs = new double[16];
+    private int[] flags = new int[16];
+    private int[] links = new int[16];
+    private Object[] values = new Object[16];
+    private int size;
+    private int nextId;
+
+    // open addressing map from id to slot, keys and slots share the same index
+    private int[] tableKeys = newTable(32);
+    private int[] tableSlots = new int[32];
+    private int tableMask = 31;
+
+    /**
+     * add value, return its stable id
+     *
+     * @param lat
+     * @param lng
+     * @param flags
+     * @param value
+     * @return
+     */
+    public int add(double lat, double lng, int flags, T value) {
+        if (size == ids.length) {
+            grow();
+        }
+
+        int id = nextId++;
+        int slot = size++;
+
+        ids[slot] = id;
+        lats[slot] = lat;
+        lngs[slot] = lng;
+        this.flags[slot] = flags;
+        links[slot] = EMPTY;
+        values[slot] = value;
+
+        put(id, slot);
+
+        return id;
+    }
+
+    /**
+     * remove value by id
+     *
+     * @param id
+     * @return false if the id doesn't exist
+     */
+    public boolean remove(int id) {
+        int slot = slotOf(id);
+
+        if (slot == EMPTY) {
+            return false;
+        }
+
+        delete(id);
+
+        int last = --size;
+
+        if (slot != last) {
+            ids[slot] = ids[last];
+            lats[slot] = lats[last];
+            lngs[slot] = lngs[last];
+            flags[slot] = flags[last];
+            links[slot] = links[last];
+            values[slot] = values[last];
+
+            put(ids[slot], slot);
+        }
+
+        values[last] = null;
+
+        return true;
+    }
+
+    public boolean contains(int id) {
+        return slotOf(id) != EMPTY;
+    }
+
+    /**
+     * return value by id, or null if the id doesn't exist
+     *
+     * @param id
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int id) {
+        int slot = slotOf(id);
+
+        return slot != EMPTY ? (T) values[slot] : null;
+    }
+
+    public double getLatitude(int id) {
+        return lats[requireSlot(id)];
+    }
+
+    public double getLongitude(int id) {
+        return lngs[requireSlot(id)];
+    }
+
+    public int getFlags(int id) {
+        return flags[requireSlot(id)];
+    }
+
+    public void setFlags(int id, int value) {
+        flags[requireSlot(id)] = value;
+    }
+
+    /**
+     * return the secondary id attached to the value, such as its id in a spatial index
+     *
+     * @param id
+     * @return
+     */
+    public int getLink(int id) {
+        return links[requireSlot(id)];
+    }
+
+    public void setLink(int id, int link) {
+        links[requireSlot(id)] = link;
+    }
+
+    public void setPosition(int id, double lat, double lng) {
+        int slot = requireSlot(id);
+
+        lats[slot] = lat;
+        lngs[slot] = lng;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * return the id at slot, slots are in [0, size) and change when values are removed
+     *
+     * @param slot
+     * @return
+     */
+    public int idAt(int slot) {
+        return ids[slot];
+    }
+
+    public double latitudeAt(int slot) {
+        return lats[slot];
+    }
+
+    public double longitudeAt(int slot) {
+        return lngs[slot];
+    }
+
+    public int flagsAt(int slot) {
+        return flags[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T valueAt(int slot) {
+        return (T) values[slot];
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0, size, null);
+        Arrays.fill(tableKeys, EMPTY);
+
+        size = 0;
+    }
+
+    /**
+     * return the slot of id, or -1 if the id doesn't exist
+     *
+     * @param id
+     * @return
+     */
+    public int slotOf(int id) {
+        if (id < 0) {
+            return EMPTY;
+        }
+
+        for (int i = hash(id) & tableMask; ; i = (i + 1) & tableMask) {
+            int key = tableKeys[i];
+
+            if (key == id) {
+                return tableSlots[i];
+            }
+
+            if (key == EMPTY) {
+                return EMPTY;
+            }
+        }
+    }
+
+    private int requireSlot(int id) {
+        int slot = slotOf(id);
+
+        if (slot == EMPTY) {
+            throw new IllegalArgumentException("Unknown marker id: " + id);
+        }
+
+        return slot;
+    }
+
+    private void put(int id, int slot) {
+        if (size * 2 > tableKeys.length) {
+            rehash(tableKeys.length * 2);
+        }
+
+        int i = hash(id) & tableMask;
+
+        while (tableKeys[i] != EMPTY && tableKeys[i] != id) {
+            i = (i + 1) & tableMask;
+        }
+
+        tableKeys[i] = id;
+        tableSlots[i] = slot;
+    }
+
+    private void delete(int id) {
+        int i = hash(id) & tableMask;
+
+        while (tableKeys[i] != id) {
+            i = (i + 1) & tableMask;
+        }
+
+        // backward shift deletion keeps probe sequences intact without tombstones
+        for (int j = (i + 1) & tableMask; tableKeys[j] != EMPTY; j = (j + 1) & tableMask) {
+            int home = hash(tableKeys[j]) & tableMask;
+
+            if (((j - home) & tableMask) >= ((j - i) & tableMask)) {
+                tableKeys[i] = tableKeys[j];
+                tableSlots[i] = tableSlots[j];
+                i = j;
+            }
+        }
+
+        tableKeys[i] = EMPTY;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = tableKeys;
+        int[] oldSlots = tableSlots;
+
+        tableKeys = newTable(capacity);
+        tableSlots = new int[capacity];
+        tableMask = capacity - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int j = hash(oldKeys[i]) & tableMask;
+
+                while (tableKeys[j] != EMPTY) {
+                    j = (j + 1) & tableMask;
+                }
+
+                tableKeys[j] = oldKeys[i];
+                tableSlots[j] = oldSlots[i];
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+
+        ids = Arrays.copyOf(ids, capacity);
+        lats = Arrays.copyOf(lats, capacity);
+        lngs = Arrays.copyOf(lngs, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        links = Arrays.copyOf(links, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    private static int[] newTable(int capacity) {
+        int[] table = new int[capacity];
+
+        Arrays.fill(table, EMPTY);
+
+        return table;
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9e3779b9;
+
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,166 @@
+package tw.kewang.mapcontroller;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * add markers of a source while it's read, the source is parsed on a background thread which
+ * blocks when the bounded queue is full, each frame drains at most one batch within the frame
+ * budget, so memory is proportional to the batch size rather than the source size
+ *
+ * @author kewang
+ */
+public class MarkerStream implements Choreographer.FrameCallback {
+    private static final String TAG = MarkerStream.class.getSimpleName();
+    static final int DEFAULT_BATCH_SIZE = 256;
+    private static final MarkerOptions END = new MarkerOptions();
+
+    private final GoogleMap map;
+    private final MarkerSource source;
+    private final int batchSize;
+    private final long frameBudgetNanos;
+    private final MarkerLoader.Sink sink;
+    private final MapController.LoadMarkers callback;
+    private final ArrayBlockingQueue<MarkerOptions> queue;
+    private final Thread reader;
+    private volatile boolean cancelled;
+    private volatile Exception error;
+    private int loaded;
+    private boolean finished;
+
+    MarkerStream(GoogleMap map, MarkerSource source, int batchSize, long frameBudgetNanos, MarkerLoader.Sink sink, MapController.LoadMarkers callback) {
+        this.map = map;
+        this.source = source;
+        this.batchSize = batchSize;
+        this.frameBudgetNanos = frameBudgetNanos;
+        this.sink = sink;
+        this.callback = callback;
+        this.queue = new ArrayBlockingQueue<>(batchSize * 2);
+        this.reader = new Thread(this::read, TAG);
+
+        reader.setDaemon(true);
+    }
+
+    void start() {
+        reader.start();
+
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * cancel the loading and close the source, markers already added are kept
+     */
+    public void cancel() {
+        if (!cancelled && !finished) {
+            cancelled = true;
+
+            reader.interrupt();
+            queue.clear();
+
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * return the error which stopped reading the source, or null
+     *
+     * @return
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    /**
+     * return the number of markers already added
+     *
+     * @return
+     */
+    public int getLoaded() {
+        return loaded;
+    }
+
+    private void read() {
+        try {
+            MarkerOptions opts;
+
+            while (!cancelled && (opts = source.next()) != null) {
+                queue.put(opts);
+            }
+        } catch (IOException | RuntimeException e) {
+            error = e;
+
+            Log.e(TAG, "Can't read markers: " + e.getMessage());
+        } catch (InterruptedException e) {
+            if (!cancelled) {
+                error = e;
+            }
+        } finally {
+            try {
+                source.close();
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Can't close source: " + e.getMessage());
+            }
+
+            // nobody drains the queue after cancel, so END would only block the reader
+            if (!cancelled) {
+                try {
+                    queue.put(END);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (cancelled) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int before = loaded;
+        MarkerOptions opts;
+
+        while (loaded - before < batchSize && System.nanoTime() - start < frameBudgetNanos && (opts = queue.poll()) != null) {
+            if (opts == END) {
+                finished = true;
+
+                if (callback != null) {
+                    if (error != null) {
+                        callback.failed(map, loaded, error);
+                    } else {
+                        callback.progress(map, loaded, loaded);
+                        callback.completed(map, loaded);
+                    }
+                }
+
+                return;
+            }
+
+            sink.added(map.addMarker(opts), opts);
+
+            loaded++;
+        }
+
+        // the total is unknown until the source is exhausted
+        if (loaded > before && callback != null) {
+            callback.progress(map, loaded, -1);
+        }
+
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
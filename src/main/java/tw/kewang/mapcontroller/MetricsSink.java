@@ -0,0 +1,53 @@
+package tw.kewang.mapcontroller;
+
+/**
+ * receiver of the metrics recorded by {@link MapController}, metrics are identified by the int
+ * constants below so recording doesn't allocate, methods are invoked on the main thread except
+ * {@link #LATENCY_FIND} of find, which runs on the caller thread
+ *
+ * @author kewang
+ * @see HistogramMetricsSink
+ */
+public interface MetricsSink {
+    /**
+     * operations whose GoogleMap calls are counted, each call which changes the map is counted
+     * once under the operation which issued it, camera calls of tracking count as tracking
+     */
+    int OP_ADD_MARKER = 0;
+    int OP_ADD_MARKERS = 1;
+    int OP_REMOVE_MARKERS = 2;
+    int OP_CLEAR_MARKERS = 3;
+    int OP_SET_MARKERS = 4;
+    int OP_ANIMATE_TO = 5;
+    int OP_MOVE_TO = 6;
+    int OP_TRACK_MY_LOCATION = 7;
+    int OP_COUNT = 8;
+
+    /**
+     * latencies in nanoseconds, camera latencies are measured from the first update of a
+     * coalesced batch until the camera settles
+     */
+    int LATENCY_ADD_MARKERS = 0;
+    int LATENCY_FIND = 1;
+    int LATENCY_FIND_ASYNC = 2;
+    int LATENCY_ANIMATE_TO_IDLE = 3;
+    int LATENCY_MOVE_TO_IDLE = 4;
+    int LATENCY_FIX_INTERVAL = 5;
+    int LATENCY_FIND_ADDRESS = 6;
+    int LATENCY_FIND_ALL = 7;
+    int LATENCY_COUNT = 8;
+
+    /**
+     * counters
+     */
+    int COUNT_FIXES = 0;
+    int COUNT_DROPPED_FIXES = 1;
+    int COUNT_COALESCED_CAMERA_UPDATES = 2;
+    int COUNTER_COUNT = 3;
+
+    void mapCalls(int operation, int calls);
+
+    void latency(int metric, long nanos);
+
+    void count(int counter, int delta);
+}
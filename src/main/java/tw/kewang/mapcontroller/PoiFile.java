@@ -0,0 +1,167 @@
+package tw.kewang.mapcontroller;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * read-only view of a POI file written by {@link PoiWriter}, records are read straight from the
+ * buffer, objects are only allocated when a record is turned into a marker
+ * <p>
+ * the file starts with a header of {@link #HEADER_SIZE} bytes: magic, version, flags, record
+ * count and string table offset, followed by fixed records of {@link #RECORD_SIZE} bytes:
+ * latitude and longitude in 1e-7 degrees, category, title offset and snippet offset, and the
+ * string table of length prefixed UTF-8 strings, all big endian, a string offset of -1 means
+ * there is no string
+ *
+ * @author kewang
+ */
+public class PoiFile {
+    static final int MAGIC = 0x4d43504f;
+    static final int VERSION = 1;
+    static final int FLAG_SPATIALLY_SORTED = 1;
+    static final int HEADER_SIZE = 20;
+    static final int RECORD_SIZE = 20;
+    static final double SCALE = 1e7;
+
+    private final ByteBuffer buffer;
+    private final int flags;
+    private final int size;
+    private final int stringTable;
+    private Styler styler;
+
+    private PoiFile(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Invalid POI file");
+        }
+
+        this.buffer = buffer;
+        this.flags = buffer.getInt(8);
+        this.size = buffer.getInt(12);
+        this.stringTable = buffer.getInt(16);
+
+        if (size < 0 || stringTable < HEADER_SIZE + (long) size * RECORD_SIZE || stringTable > buffer.limit()) {
+            throw new IOException("Invalid POI file");
+        }
+    }
+
+    /**
+     * memory map the file
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static PoiFile open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            return new PoiFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * wrap a buffer holding the file, such as an asset read into a direct buffer
+     *
+     * @param buffer
+     * @return
+     * @throws IOException
+     */
+    public static PoiFile wrap(ByteBuffer buffer) throws IOException {
+        return new PoiFile(buffer.slice());
+    }
+
+    /**
+     * set the styler which customizes markers created from the records, such as an icon per
+     * category
+     *
+     * @param styler
+     */
+    public void setStyler(Styler styler) {
+        this.styler = styler;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * return true if the records are sorted in Z-order, so records close in the file are close in
+     * space
+     *
+     * @return
+     */
+    public boolean isSpatiallySorted() {
+        return (flags & FLAG_SPATIALLY_SORTED) != 0;
+    }
+
+    public double getLatitude(int index) {
+        return buffer.getInt(offsetOf(index)) / SCALE;
+    }
+
+    public double getLongitude(int index) {
+        return buffer.getInt(offsetOf(index) + 4) / SCALE;
+    }
+
+    public int getCategory(int index) {
+        return buffer.getInt(offsetOf(index) + 8);
+    }
+
+    public String getTitle(int index) {
+        return readString(buffer.getInt(offsetOf(index) + 12));
+    }
+
+    public String getSnippet(int index) {
+        return readString(buffer.getInt(offsetOf(index) + 16));
+    }
+
+    /**
+     * create marker options of the record
+     *
+     * @param index
+     * @return
+     */
+    public MarkerOptions toMarkerOptions(int index) {
+        MarkerOptions opts = new MarkerOptions()
+                .position(new LatLng(getLatitude(index), getLongitude(index)))
+                .title(getTitle(index))
+                .snippet(getSnippet(index));
+
+        if (styler != null) {
+            styler.style(this, index, opts);
+        }
+
+        return opts;
+    }
+
+    private int offsetOf(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private String readString(int offset) {
+        if (offset < 0) {
+            return null;
+        }
+
+        int position = stringTable + offset;
+        byte[] bytes = new byte[buffer.getShort(position) & 0xffff];
+        ByteBuffer view = buffer.duplicate();
+
+        view.position(position + 2);
+        view.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public interface Styler {
+        void style(PoiFile file, int index, MarkerOptions opts);
+    }
+}
@@ -0,0 +1,222 @@
+package tw.kewang.mapcontroller;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * write POI files read by {@link PoiFile}, it has no Android dependency so it can run at build
+ * time, see {@link #main(String[])}
+ *
+ * @author kewang
+ */
+public class PoiWriter {
+    private static final int SORT_LEVEL = 16;
+
+    private int[] lats = new int[256];
+    private int[] lngs = new int[256];
+    private int[] categories = new int[256];
+    private int[] titles = new int[256];
+    private int[] snippets = new int[256];
+    private int size;
+    private boolean spatialSort;
+    private final HashMap<String, Integer> stringOffsets = new HashMap<>();
+    private final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+
+    /**
+     * sort records in Z-order when writing, so records close in the file are close in space
+     *
+     * @param spatialSort
+     */
+    public void setSpatialSort(boolean spatialSort) {
+        this.spatialSort = spatialSort;
+    }
+
+    /**
+     * add record
+     *
+     * @param lat
+     * @param lng
+     * @param category
+     * @param title    nullable
+     * @param snippet  nullable
+     */
+    public void add(double lat, double lng, int category, String title, String snippet) {
+        if (size == lats.length) {
+            int capacity = size * 2;
+
+            lats = Arrays.copyOf(lats, capacity);
+            lngs = Arrays.copyOf(lngs, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            snippets = Arrays.copyOf(snippets, capacity);
+        }
+
+        lats[size] = (int) Math.round(lat * PoiFile.SCALE);
+        lngs[size] = (int) Math.round(lng * PoiFile.SCALE);
+        categories[size] = category;
+        titles[size] = addString(title);
+        snippets[size] = addString(snippet);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * write all records
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        int[] order = spatialSort ? spatialOrder() : null;
+
+        data.writeInt(PoiFile.MAGIC);
+        data.writeInt(PoiFile.VERSION);
+        data.writeInt(spatialSort ? PoiFile.FLAG_SPATIALLY_SORTED : 0);
+        data.writeInt(size);
+        data.writeInt(PoiFile.HEADER_SIZE + size * PoiFile.RECORD_SIZE);
+
+        for (int i = 0; i < size; i++) {
+            int index = order != null ? order[i] : i;
+
+            data.writeInt(lats[index]);
+            data.writeInt(lngs[index]);
+            data.writeInt(categories[index]);
+            data.writeInt(titles[index]);
+            data.writeInt(snippets[index]);
+        }
+
+        strings.writeTo(data);
+        data.flush();
+    }
+
+    /**
+     * write all records to file
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void write(File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            write(out);
+        }
+    }
+
+    private int addString(String s) {
+        if (s == null) {
+            return -1;
+        }
+
+        Integer offset = stringOffsets.get(s);
+
+        if (offset != null) {
+            return offset;
+        }
+
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+
+        if (bytes.length > 0xffff) {
+            throw new IllegalArgumentException("String is too long: " + bytes.length + " bytes");
+        }
+
+        offset = strings.size();
+
+        strings.write(bytes.length >>> 8);
+        strings.write(bytes.length);
+        strings.write(bytes, 0, bytes.length);
+
+        stringOffsets.put(s, offset);
+
+        return offset;
+    }
+
+    private int[] spatialOrder() {
+        long[] codes = new long[size];
+        int levelSize = 1 << SORT_LEVEL;
+
+        for (int i = 0; i < size; i++) {
+            double x = WebMercator.x(lngs[i] / PoiFile.SCALE);
+            double y = WebMercator.y(lats[i] / PoiFile.SCALE);
+            int cellX = Math.min(levelSize - 1, Math.max(0, (int) (x * levelSize)));
+            int cellY = Math.min(levelSize - 1, Math.max(0, (int) (y * levelSize)));
+
+            codes[i] = (WebMercator.morton(cellX, cellY) << 31) | i;
+        }
+
+        Arrays.sort(codes);
+
+        int[] order = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            order[i] = (int) (codes[i] & Integer.MAX_VALUE);
+        }
+
+        return order;
+    }
+
+    /**
+     * convert CSV lines {@code lat,lng[,category[,title[,snippet]]]} to a POI file, a header line
+     * is skipped
+     * <p>
+     * usage: {@code PoiWriter <input.csv> <output.poi> [--sort]}
+     *
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PoiWriter <input.csv> <output.poi> [--sort]");
+            System.exit(1);
+        }
+
+        PoiWriter writer = new PoiWriter();
+
+        writer.setSpatialSort(args.length > 2 && "--sort".equals(args[2]));
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                ArrayList<String> fields = Csv.split(line);
+
+                try {
+                    writer.add(Double.parseDouble(fields.get(0).trim()),
+                            Double.parseDouble(fields.get(1).trim()),
+                            fields.size() > 2 && !fields.get(2).trim().isEmpty() ? Integer.parseInt(fields.get(2).trim()) : 0,
+                            fields.size() > 3 && !fields.get(3).isEmpty() ? fields.get(3) : null,
+                            fields.size() > 4 && !fields.get(4).isEmpty() ? fields.get(4) : null);
+                } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                    if (lineNumber > 1) {
+                        throw new IOException("Invalid CSV at line " + lineNumber);
+                    }
+                }
+            }
+        }
+
+        writer.write(new File(args[1]));
+
+        System.out.println("Wrote " + writer.size() + " records to " + args[1]);
+    }
+}
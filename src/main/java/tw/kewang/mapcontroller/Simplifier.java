@@ -0,0 +1,109 @@
+package tw.kewang.mapcontroller;
+
+import java.util.Arrays;
+
+/**
+ * Douglas-Peucker line simplification over primitive coordinates
+ *
+ * @author kewang
+ */
+public final class Simplifier {
+    private Simplifier() {
+    }
+
+    /**
+     * simplify the points in [from, to], the indices of kept points are written to out in
+     * ascending order, both end points are always kept
+     *
+     * @param xs
+     * @param ys
+     * @param from
+     * @param to        inclusive
+     * @param tolerance maximum distance between the original and simplified line, in the units of xs
+     *                  and ys
+     * @param out       must have room for to - from + 1 indices
+     * @return the number of kept points
+     */
+    public static int simplify(double[] xs, double[] ys, int from, int to, double tolerance, int[] out) {
+        if (to - from < 2) {
+            int count = 0;
+
+            for (int i = from; i <= to; i++) {
+                out[count++] = i;
+            }
+
+            return count;
+        }
+
+        boolean[] kept = new boolean[to - from + 1];
+        int[] stack = new int[Math.max(2, 2 * (int) Math.ceil(Math.log(to - from + 1) / Math.log(2)) + 4)];
+        int top = 0;
+        double squaredTolerance = tolerance * tolerance;
+
+        kept[0] = true;
+        kept[to - from] = true;
+        stack[top++] = from;
+        stack[top++] = to;
+
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double maxDistance = 0;
+            int index = -1;
+
+            for (int i = first + 1; i < last; i++) {
+                double distance = squaredSegmentDistance(xs[i], ys[i], xs[first], ys[first], xs[last], ys[last]);
+
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    index = i;
+                }
+            }
+
+            if (index >= 0 && maxDistance > squaredTolerance) {
+                kept[index - from] = true;
+
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+
+                stack[top++] = first;
+                stack[top++] = index;
+                stack[top++] = index;
+                stack[top++] = last;
+            }
+        }
+
+        int count = 0;
+
+        for (int i = 0; i < kept.length; i++) {
+            if (kept[i]) {
+                out[count++] = from + i;
+            }
+        }
+
+        return count;
+    }
+
+    static double squaredSegmentDistance(double x, double y, double x1, double y1, double x2, double y2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+
+        if (dx != 0 || dy != 0) {
+            double t = ((x - x1) * dx + (y - y1) * dy) / (dx * dx + dy * dy);
+
+            if (t > 1) {
+                x1 = x2;
+                y1 = y2;
+            } else if (t > 0) {
+                x1 += dx * t;
+                y1 += dy * t;
+            }
+        }
+
+        dx = x - x1;
+        dy = y - y1;
+
+        return dx * dx + dy * dy;
+    }
+}
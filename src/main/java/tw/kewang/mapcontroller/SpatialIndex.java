@@ -0,0 +1,402 @@
+package tw.kewang.mapcontroller;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * grid bucketed spatial index, positions are cached as primitives so that queries never have to
+ * call back into the Maps SDK
+ *
+ * @author kewang
+ */
+public class SpatialIndex<T> {
+    static final double EARTH_RADIUS = 6371008.8;
+    static final double METERS_PER_DEGREE = EARTH_RADIUS * Math.PI / 180;
+    private static final double DEFAULT_CELL_SIZE = 0.01;
+
+    private final double cellSize;
+    private final int columns;
+    private final HashMap<Long, Bucket> cells = new HashMap<>();
+    private double[] lats = new double[16];
+    private double[] lngs = new double[16];
+    private long[] keys = new long[16];
+    private int[] slots = new int[16];
+    private Object[] values = new Object[16];
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private int capacity;
+    private int size;
+
+    public SpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * @param cellSize cell size in degrees
+     */
+    public SpatialIndex(double cellSize) {
+        this.cellSize = cellSize;
+        this.columns = (int) Math.ceil(360 / cellSize);
+    }
+
+    /**
+     * add value at position, return its id
+     *
+     * @param lat
+     * @param lng
+     * @param value
+     * @return
+     */
+    public int add(double lat, double lng, T value) {
+        int id;
+
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            ensureCapacity(capacity + 1);
+
+            id = capacity++;
+        }
+
+        long key = key(row(lat), column(lng));
+        Bucket bucket = cells.get(key);
+
+        if (bucket == null) {
+            bucket = new Bucket();
+
+            cells.put(key, bucket);
+        }
+
+        lats[id] = lat;
+        lngs[id] = lng;
+        keys[id] = key;
+        slots[id] = bucket.add(id);
+        values[id] = value;
+        size++;
+
+        return id;
+    }
+
+    /**
+     * remove value by id
+     *
+     * @param id
+     */
+    public void remove(int id) {
+        if (id < 0 || id >= capacity || values[id] == null) {
+            return;
+        }
+
+        Bucket bucket = cells.get(keys[id]);
+        int moved = bucket.remove(slots[id]);
+
+        if (moved >= 0) {
+            slots[moved] = slots[id];
+        }
+
+        if (bucket.size == 0) {
+            cells.remove(keys[id]);
+        }
+
+        values[id] = null;
+
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+
+        freeIds[freeCount++] = id;
+        size--;
+    }
+
+    /**
+     * return value by id
+     *
+     * @param id
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int id) {
+        return id >= 0 && id < capacity ? (T) values[id] : null;
+    }
+
+    public double getLatitude(int id) {
+        return lats[id];
+    }
+
+    public double getLongitude(int id) {
+        return lngs[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        cells.clear();
+
+        Arrays.fill(values, 0, capacity, null);
+
+        freeCount = 0;
+        capacity = 0;
+        size = 0;
+    }
+
+    /**
+     * collect values inside bounds, west may be greater than east when crossing the antimeridian
+     *
+     * @param south
+     * @param west
+     * @param north
+     * @param east
+     * @param out
+     */
+    public void queryBounds(double south, double west, double north, double east, List<T> out) {
+        visit(south, west, north, east, id -> out.add(get(id)));
+    }
+
+    /**
+     * collect values within radius in meters
+     *
+     * @param lat
+     * @param lng
+     * @param meters
+     * @param out
+     */
+    public void withinRadius(double lat, double lng, double meters, List<T> out) {
+        double latSpan = meters / METERS_PER_DEGREE;
+        double cos = Math.cos(Math.toRadians(Math.min(90, Math.abs(lat) + latSpan)));
+        double lngSpan = cos > 1e-6 ? latSpan / cos : 360;
+        double south = Math.max(-90, lat - latSpan);
+        double north = Math.min(90, lat + latSpan);
+        IdVisitor visitor = id -> {
+            if (distance(lat, lng, lats[id], lngs[id]) <= meters) {
+                out.add(get(id));
+            }
+        };
+
+        if (lngSpan >= 180) {
+            visit(south, -180, north, 180, visitor);
+        } else {
+            visit(south, normalizeLongitude(lng - lngSpan), north, normalizeLongitude(lng + lngSpan), visitor);
+        }
+    }
+
+    /**
+     * collect the k nearest values, ordered by distance
+     *
+     * @param lat
+     * @param lng
+     * @param k
+     * @param out
+     */
+    @SuppressWarnings("unchecked")
+    public void nearest(double lat, double lng, int k, List<T> out) {
+        if (k <= 0 || size == 0) {
+            return;
+        }
+
+        int[] bestIds = new int[k];
+        double[] bestDistances = new double[k];
+        int found = 0;
+        int centerRow = row(lat);
+        int centerColumn = column(lng);
+        int visited = 0;
+
+        for (int ring = 0; visited < size; ring++) {
+            if (8L * ring > cells.size() || 2 * ring + 1 > columns) {
+                found = 0;
+
+                for (Bucket bucket : cells.values()) {
+                    for (int i = 0; i < bucket.size; i++) {
+                        int id = bucket.ids[i];
+
+                        found = offer(bestIds, bestDistances, found, id, distance(lat, lng, lats[id], lngs[id]));
+                    }
+                }
+
+                break;
+            }
+
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                int step = edgeRow ? 1 : Math.max(1, 2 * ring);
+
+                for (int column = centerColumn - ring; column <= centerColumn + ring; column += step) {
+                    Bucket bucket = cells.get(key(row, column));
+
+                    if (bucket == null) {
+                        continue;
+                    }
+
+                    visited += bucket.size;
+
+                    for (int i = 0; i < bucket.size; i++) {
+                        int id = bucket.ids[i];
+
+                        found = offer(bestIds, bestDistances, found, id, distance(lat, lng, lats[id], lngs[id]));
+                    }
+                }
+            }
+
+            if (found == k) {
+                double reach = ring * cellSize;
+                double cos = Math.cos(Math.toRadians(Math.min(90, Math.abs(lat) + reach + cellSize)));
+
+                if (reach * METERS_PER_DEGREE * Math.max(cos, 0) >= bestDistances[k - 1]) {
+                    break;
+                }
+            }
+        }
+
+        for (int i = 0; i < found; i++) {
+            out.add((T) values[bestIds[i]]);
+        }
+    }
+
+    /**
+     * great circle distance in meters
+     */
+    static double distance(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static int offer(int[] ids, double[] distances, int found, int id, double distance) {
+        int k = ids.length;
+
+        if (found == k && distance >= distances[k - 1]) {
+            return found;
+        }
+
+        int i = found == k ? k - 1 : found++;
+
+        while (i > 0 && distances[i - 1] > distance) {
+            ids[i] = ids[i - 1];
+            distances[i] = distances[i - 1];
+            i--;
+        }
+
+        ids[i] = id;
+        distances[i] = distance;
+
+        return found;
+    }
+
+    /**
+     * visit ids inside bounds, west may be greater than east when crossing the antimeridian
+     */
+    void visit(double south, double west, double north, double east, IdVisitor visitor) {
+        if (west > east) {
+            visit(south, west, north, 180, visitor);
+            visit(south, -180, north, east, visitor);
+
+            return;
+        }
+
+        int minRow = row(south);
+        int maxRow = row(north);
+        int minColumn = column(west);
+        int maxColumn = column(east);
+
+        if ((long) (maxRow - minRow + 1) * (maxColumn - minColumn + 1) > cells.size()) {
+            for (Bucket bucket : cells.values()) {
+                visit(bucket, south, west, north, east, visitor);
+            }
+        } else {
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int column = minColumn; column <= maxColumn; column++) {
+                    Bucket bucket = cells.get(key(row, column));
+
+                    if (bucket != null) {
+                        visit(bucket, south, west, north, east, visitor);
+                    }
+                }
+            }
+        }
+    }
+
+    private void visit(Bucket bucket, double south, double west, double north, double east, IdVisitor visitor) {
+        for (int i = 0; i < bucket.size; i++) {
+            int id = bucket.ids[i];
+            double lat = lats[id];
+            double lng = lngs[id];
+
+            if (lat >= south && lat <= north && lng >= west && lng <= east) {
+                visitor.visit(id);
+            }
+        }
+    }
+
+    private int row(double lat) {
+        return (int) Math.floor((Math.max(-90, Math.min(90, lat)) + 90) / cellSize);
+    }
+
+    private int column(double lng) {
+        return (int) Math.floor((normalizeLongitude(lng) + 180) / cellSize);
+    }
+
+    private long key(int row, int column) {
+        int wrapped = column % columns;
+
+        return (long) row * columns + (wrapped < 0 ? wrapped + columns : wrapped);
+    }
+
+    private static double normalizeLongitude(double lng) {
+        if (lng >= -180 && lng <= 180) {
+            return lng;
+        }
+
+        return ((lng + 180) % 360 + 360) % 360 - 180;
+    }
+
+    private void ensureCapacity(int newCapacity) {
+        if (newCapacity > lats.length) {
+            int length = Math.max(newCapacity, lats.length * 2);
+
+            lats = Arrays.copyOf(lats, length);
+            lngs = Arrays.copyOf(lngs, length);
+            keys = Arrays.copyOf(keys, length);
+            slots = Arrays.copyOf(slots, length);
+            values = Arrays.copyOf(values, length);
+        }
+    }
+
+    interface IdVisitor {
+        void visit(int id);
+    }
+
+    private static class Bucket {
+        int[] ids = new int[4];
+        int size;
+
+        int add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+
+            ids[size] = id;
+
+            return size++;
+        }
+
+        /**
+         * swap remove, return the id moved into the slot or -1
+         */
+        int remove(int slot) {
+            size--;
+
+            if (slot == size) {
+                return -1;
+            }
+
+            ids[slot] = ids[size];
+
+            return ids[slot];
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package tw.kewang.mapcontroller;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.maps.GoogleMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * load markers of a data source per slippy map tile around the settled viewport, tiles of a ring
+ * around the visible tiles are prefetched, loaded tiles are kept in an LRU cache bounded by the
+ * number of markers, and loads of tiles which are no longer needed are cancelled, so a slow
+ * response of an old viewport never replaces markers of a newer one
+ *
+ * @author kewang
+ */
+public class TileLoader implements MapController.ViewportChanged {
+    private static final String TAG = TileLoader.class.getSimpleName();
+    private static final int POOL_SIZE = 4;
+    static final int DEFAULT_MAX_ZOOM = 14;
+    static final int DEFAULT_PREFETCH = 1;
+    static final int DEFAULT_MAX_CACHED_MARKERS = 10_000;
+
+    private final DataSource source;
+    private final Sink sink;
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LinkedHashMap<Long, List<KeyedMarkerOptions>> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final HashMap<Long, Request> inFlight = new HashMap<>();
+    private final LinkedHashSet<Long> visible = new LinkedHashSet<>();
+    private final LinkedHashSet<Long> needed = new LinkedHashSet<>();
+    private final HashSet<Long> failed = new HashSet<>();
+    private int maxZoom = DEFAULT_MAX_ZOOM;
+    private int prefetch = DEFAULT_PREFETCH;
+    private int maxCachedMarkers = DEFAULT_MAX_CACHED_MARKERS;
+    private int cachedMarkers;
+    private boolean stopped;
+    private boolean hasViewport;
+    private double south;
+    private double west;
+    private double north;
+    private double east;
+    private float zoom;
+
+    TileLoader(DataSource source, Sink sink) {
+        this.source = source;
+        this.sink = sink;
+
+        executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, TAG);
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * set the highest zoom of the tiles, the camera zoom rounded down is used below it
+     *
+     * @param maxZoom
+     */
+    public void setMaxZoom(int maxZoom) {
+        this.maxZoom = Math.max(0, Math.min(28, maxZoom));
+
+        update();
+    }
+
+    /**
+     * set the width of the ring of prefetched tiles around the visible tiles
+     *
+     * @param prefetch
+     */
+    public void setPrefetch(int prefetch) {
+        this.prefetch = Math.max(0, prefetch);
+
+        update();
+    }
+
+    /**
+     * set the number of cached markers above which the least recently used tiles are evicted,
+     * tiles around the viewport are never evicted
+     *
+     * @param maxCachedMarkers
+     */
+    public void setMaxCachedMarkers(int maxCachedMarkers) {
+        this.maxCachedMarkers = maxCachedMarkers;
+
+        evict();
+    }
+
+    public int getCachedTileCount() {
+        return cache.size();
+    }
+
+    public int getCachedMarkerCount() {
+        return cachedMarkers;
+    }
+
+    public int getLoadingTileCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * drop cached tiles and load the viewport again, such as when the data has changed
+     */
+    public void refresh() {
+        cancelAll();
+
+        cache.clear();
+        failed.clear();
+
+        cachedMarkers = 0;
+
+        update();
+    }
+
+    @Override
+    public void changed(GoogleMap map, double south, double west, double north, double east, float zoom, boolean zoomLevelChanged) {
+        this.south = south;
+        this.west = west;
+        this.north = north;
+        this.east = east;
+        this.zoom = zoom;
+
+        hasViewport = true;
+
+        update();
+    }
+
+    /**
+     * cancel all loads, the loader can't be used anymore
+     */
+    void stop() {
+        stopped = true;
+
+        cancelAll();
+
+        executor.shutdownNow();
+    }
+
+    private void update() {
+        if (!hasViewport || stopped) {
+            return;
+        }
+
+        int tileZoom = Math.max(0, Math.min(maxZoom, (int) Math.floor(zoom)));
+        int count = 1 << tileZoom;
+        int minX = tile(WebMercator.x(west), count);
+        int maxX = tile(WebMercator.x(east), count);
+        int minY = tile(WebMercator.y(north), count);
+        int maxY = tile(WebMercator.y(south), count);
+
+        // crossing the antimeridian
+        if (maxX < minX) {
+            maxX += count;
+        }
+
+        visible.clear();
+        needed.clear();
+
+        collect(tileZoom, count, minX, maxX, minY, maxY, visible);
+
+        needed.addAll(visible);
+
+        collect(tileZoom, count, minX - prefetch, maxX + prefetch, minY - prefetch, maxY + prefetch, needed);
+
+        for (Iterator<Map.Entry<Long, Request>> it = inFlight.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Request> entry = it.next();
+
+            if (!needed.contains(entry.getKey())) {
+                entry.getValue().cancel();
+
+                it.remove();
+            }
+        }
+
+        // visible tiles are loaded first
+        for (Long key : needed) {
+            if (cache.get(key) == null && !inFlight.containsKey(key)) {
+                load(key);
+            }
+        }
+
+        publish();
+    }
+
+    private static void collect(int zoom, int count, int minX, int maxX, int minY, int maxY, Collection<Long> out) {
+        for (int y = Math.max(0, minY); y <= Math.min(count - 1, maxY); y++) {
+            for (int x = minX; x <= maxX && x - minX < count; x++) {
+                out.add(key(zoom, ((x % count) + count) % count, y));
+            }
+        }
+    }
+
+    private void load(final long key) {
+        final int zoom = (int) (key >>> 56);
+        final int x = (int) ((key >>> 28) & 0xfffffff);
+        final int y = (int) (key & 0xfffffff);
+        final double count = 1 << zoom;
+        final Request request = new Request();
+
+        failed.remove(key);
+
+        request.future = executor.submit(() -> {
+            List<KeyedMarkerOptions> items;
+
+            try {
+                items = source.load(zoom, x, y, WebMercator.lat((y + 1) / count), WebMercator.lng(x / count),
+                        WebMercator.lat(y / count), WebMercator.lng((x + 1) / count));
+            } catch (Exception e) {
+                if (!request.cancelled) {
+                    Log.e(TAG, "Can't load tile " + zoom + "/" + x + "/" + y + ": " + e.getMessage());
+                }
+
+                items = null;
+            }
+
+            List<KeyedMarkerOptions> result = items;
+
+            mainHandler.post(() -> onLoaded(key, request, result));
+        });
+
+        inFlight.put(key, request);
+    }
+
+    private void onLoaded(long key, Request request, List<KeyedMarkerOptions> items) {
+        // the tile was cancelled or is loaded again
+        if (stopped || inFlight.get(key) != request) {
+            return;
+        }
+
+        inFlight.remove(key);
+
+        // failed tiles are loaded again on the next viewport change
+        if (items == null) {
+            failed.add(key);
+        } else {
+            cache.put(key, items);
+
+            cachedMarkers += items.size();
+
+            evict();
+        }
+
+        if (visible.contains(key)) {
+            publish();
+        }
+    }
+
+    private void evict() {
+        for (Iterator<Map.Entry<Long, List<KeyedMarkerOptions>>> it = cache.entrySet().iterator(); it.hasNext() && cachedMarkers > maxCachedMarkers; ) {
+            Map.Entry<Long, List<KeyedMarkerOptions>> entry = it.next();
+
+            if (!needed.contains(entry.getKey())) {
+                cachedMarkers -= entry.getValue().size();
+
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * replace the markers with those of the visible tiles once every visible tile is loaded or has
+     * failed, the previous markers are kept until then, so panning and zooming neither blank the
+     * map nor replace the markers tile by tile
+     */
+    private void publish() {
+        for (Long key : visible) {
+            if (inFlight.containsKey(key)) {
+                return;
+            }
+        }
+
+        LinkedHashMap<Object, KeyedMarkerOptions> merged = new LinkedHashMap<>();
+        boolean loaded = false;
+
+        for (Long key : visible) {
+            List<KeyedMarkerOptions> items = cache.get(key);
+
+            if (items == null) {
+                continue;
+            }
+
+            loaded = true;
+
+            // markers on the edge of two tiles are loaded twice
+            for (KeyedMarkerOptions keyedOpts : items) {
+                merged.put(keyedOpts.getKey(), keyedOpts);
+            }
+        }
+
+        if (loaded) {
+            sink.setMarkers(new ArrayList<>(merged.values()));
+        }
+    }
+
+    private void cancelAll() {
+        for (Request request : inFlight.values()) {
+            request.cancel();
+        }
+
+        inFlight.clear();
+    }
+
+    private static int tile(double value, int count) {
+        return Math.max(0, Math.min(count - 1, (int) Math.floor(value * count)));
+    }
+
+    private static long key(int zoom, int x, int y) {
+        return ((long) zoom << 56) | ((long) x << 28) | y;
+    }
+
+    interface Sink {
+        void setMarkers(Collection<KeyedMarkerOptions> allOpts);
+    }
+
+    private static class Request {
+        Future<?> future;
+        volatile boolean cancelled;
+
+        void cancel() {
+            cancelled = true;
+
+            future.cancel(true);
+        }
+    }
+}
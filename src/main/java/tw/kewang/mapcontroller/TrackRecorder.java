@@ -0,0 +1,252 @@
+package tw.kewang.mapcontroller;
+
+import android.location.Location;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Polyline;
+import com.google.android.gms.maps.model.PolylineOptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * record a track in primitive arrays and render it incrementally, only a short tail polyline is
+ * updated per fix, older points are simplified and merged into one polyline periodically
+ *
+ * @author kewang
+ */
+public class TrackRecorder {
+    private static final int SEGMENT_SIZE = 64;
+    private static final int SEGMENTS_PER_MERGE = 16;
+    private static final double DEFAULT_TOLERANCE = 5;
+
+    private final GoogleMap map;
+    private final PolylineOptions style;
+    private double[] lats = new double[256];
+    private double[] lngs = new double[256];
+    private long[] times = new long[256];
+    private float[] accuracies = new float[256];
+    private int size;
+    private double tolerance = DEFAULT_TOLERANCE;
+
+    private final ArrayList<Polyline> frozen = new ArrayList<>();
+    private final ArrayList<LatLng> tailPoints = new ArrayList<>(SEGMENT_SIZE + 1);
+    private Polyline tail;
+    private Polyline merged;
+    private int tailStart;
+    private int mergedEnd;
+    private double[] simplifiedLats = new double[256];
+    private double[] simplifiedLngs = new double[256];
+    private int simplifiedSize;
+
+    /**
+     * @param map
+     * @param style options used for the polylines, its points are ignored
+     */
+    public TrackRecorder(GoogleMap map, PolylineOptions style) {
+        this.map = map;
+        this.style = style;
+    }
+
+    /**
+     * set the simplification tolerance of older points in meters
+     *
+     * @param tolerance
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * record fix
+     *
+     * @param location
+     */
+    public void add(Location location) {
+        append(location.getLatitude(), location.getLongitude(), location.getTime(), location.getAccuracy());
+        render();
+    }
+
+    /**
+     * record fixes and render once
+     *
+     * @param locations
+     */
+    public void addAll(List<Location> locations) {
+        for (Location location : locations) {
+            append(location.getLatitude(), location.getLongitude(), location.getTime(), location.getAccuracy());
+
+            if (size - tailStart >= SEGMENT_SIZE) {
+                render();
+            }
+        }
+
+        render();
+    }
+
+    /**
+     * record fix
+     *
+     * @param lat
+     * @param lng
+     * @param time
+     * @param accuracy
+     */
+    public void add(double lat, double lng, long time, float accuracy) {
+        append(lat, lng, time, accuracy);
+        render();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getLatitude(int index) {
+        return lats[index];
+    }
+
+    public double getLongitude(int index) {
+        return lngs[index];
+    }
+
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    public float getAccuracy(int index) {
+        return accuracies[index];
+    }
+
+    /**
+     * remove the recorded points and the rendered polylines
+     */
+    public void clear() {
+        for (Polyline polyline : frozen) {
+            polyline.remove();
+        }
+
+        if (tail != null) {
+            tail.remove();
+        }
+
+        if (merged != null) {
+            merged.remove();
+        }
+
+        frozen.clear();
+        tailPoints.clear();
+
+        tail = null;
+        merged = null;
+        size = 0;
+        tailStart = 0;
+        mergedEnd = 0;
+        simplifiedSize = 0;
+    }
+
+    private void append(double lat, double lng, long time, float accuracy) {
+        if (size == lats.length) {
+            int capacity = size * 2;
+
+            lats = Arrays.copyOf(lats, capacity);
+            lngs = Arrays.copyOf(lngs, capacity);
+            times = Arrays.copyOf(times, capacity);
+            accuracies = Arrays.copyOf(accuracies, capacity);
+        }
+
+        lats[size] = lat;
+        lngs[size] = lng;
+        times[size] = time;
+        accuracies[size] = accuracy;
+        size++;
+    }
+
+    private void render() {
+        for (int i = tailStart + tailPoints.size(); i < size; i++) {
+            tailPoints.add(new LatLng(lats[i], lngs[i]));
+        }
+
+        if (tail == null) {
+            tail = map.addPolyline(copyStyle().addAll(tailPoints));
+        } else {
+            tail.setPoints(tailPoints);
+        }
+
+        if (tailPoints.size() >= SEGMENT_SIZE) {
+            // freeze the tail and start a new one at its last point
+            frozen.add(tail);
+
+            tail = null;
+            tailStart = size - 1;
+
+            tailPoints.clear();
+
+            if (frozen.size() >= SEGMENTS_PER_MERGE) {
+                merge();
+            }
+        }
+    }
+
+    private void merge() {
+        int from = mergedEnd;
+        int to = tailStart;
+        int count = to - from + 1;
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        int[] kept = new int[count];
+        double metersPerUnit = 2 * Math.PI * SpatialIndex.EARTH_RADIUS * Math.cos(Math.toRadians(lats[from]));
+
+        for (int i = 0; i < count; i++) {
+            xs[i] = WebMercator.x(lngs[from + i]);
+            ys[i] = WebMercator.y(lats[from + i]);
+        }
+
+        int keptCount = Simplifier.simplify(xs, ys, 0, count - 1, tolerance / Math.max(metersPerUnit, 1), kept);
+
+        // the first kept point is the last point of the previous merge
+        int skip = simplifiedSize > 0 ? 1 : 0;
+
+        if (simplifiedSize + keptCount > simplifiedLats.length) {
+            int capacity = Math.max(simplifiedSize + keptCount, simplifiedLats.length * 2);
+
+            simplifiedLats = Arrays.copyOf(simplifiedLats, capacity);
+            simplifiedLngs = Arrays.copyOf(simplifiedLngs, capacity);
+        }
+
+        for (int i = skip; i < keptCount; i++) {
+            simplifiedLats[simplifiedSize] = lats[from + kept[i]];
+            simplifiedLngs[simplifiedSize] = lngs[from + kept[i]];
+            simplifiedSize++;
+        }
+
+        ArrayList<LatLng> points = new ArrayList<>(simplifiedSize);
+
+        for (int i = 0; i < simplifiedSize; i++) {
+            points.add(new LatLng(simplifiedLats[i], simplifiedLngs[i]));
+        }
+
+        if (merged == null) {
+            merged = map.addPolyline(copyStyle().addAll(points));
+        } else {
+            merged.setPoints(points);
+        }
+
+        for (Polyline polyline : frozen) {
+            polyline.remove();
+        }
+
+        frozen.clear();
+
+        mergedEnd = to;
+    }
+
+    private PolylineOptions copyStyle() {
+        return new PolylineOptions()
+                .color(style.getColor())
+                .width(style.getWidth())
+                .zIndex(style.getZIndex())
+                .geodesic(style.isGeodesic());
+    }
+}
@@ -0,0 +1,99 @@
+package tw.kewang.mapcontroller;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.LatLngBounds;
+
+import java.util.ArrayList;
+
+/**
+ * notify subscribers once the viewport has settled, an idle camera is only reported when it
+ * doesn't start moving again within the debounce time, so a series of pans and flings is
+ * reported once
+ *
+ * @author kewang
+ */
+final class ViewportEvents implements Runnable {
+    static final long DEFAULT_DEBOUNCE_MILLIS = 250;
+
+    private final GoogleMap map;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ArrayList<MapController.ViewportChanged> listeners = new ArrayList<>();
+    private long debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+    private boolean pending;
+    private boolean reported;
+    private int lastZoomLevel;
+
+    ViewportEvents(GoogleMap map) {
+        this.map = map;
+    }
+
+    void add(MapController.ViewportChanged listener) {
+        listeners.add(listener);
+    }
+
+    boolean remove(MapController.ViewportChanged listener) {
+        boolean removed = listeners.remove(listener);
+
+        if (listeners.isEmpty()) {
+            cancel();
+        }
+
+        return removed;
+    }
+
+    void setDebounce(long millis) {
+        debounceMillis = millis;
+    }
+
+    /**
+     * must be called when the camera starts moving
+     */
+    void onCameraMoveStarted() {
+        cancel();
+    }
+
+    /**
+     * must be called when the camera is idle
+     */
+    void onCameraIdle() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+
+        cancel();
+
+        pending = true;
+
+        handler.postDelayed(this, debounceMillis);
+    }
+
+    void cancel() {
+        if (pending) {
+            pending = false;
+
+            handler.removeCallbacks(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        pending = false;
+
+        LatLngBounds bounds = map.getProjection().getVisibleRegion().latLngBounds;
+        float zoom = map.getCameraPosition().zoom;
+        int zoomLevel = (int) Math.floor(zoom);
+        boolean zoomLevelChanged = !reported || zoomLevel != lastZoomLevel;
+
+        reported = true;
+        lastZoomLevel = zoomLevel;
+
+        // listeners may unsubscribe while they're notified
+        for (Object listener : listeners.toArray()) {
+            ((MapController.ViewportChanged) listener).changed(map, bounds.southwest.latitude, bounds.southwest.longitude,
+                    bounds.northeast.latitude, bounds.northeast.longitude, zoom, zoomLevelChanged);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package tw.kewang.mapcontroller;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * keep marker options in memory and only materialize markers inside the visible region, the
+ * positions are kept in a spatial index, so an idle camera only visits the live markers and the
+ * markers around the viewport
+ *
+ * @author kewang
+ */
+public class ViewportMarkers {
+    private static final float DEFAULT_MARGIN = 0.5f;
+
+    private final GoogleMap map;
+    private final MarkerItems items = new MarkerItems();
+    // ids of the index are the indices of the items, items are never removed one by one
+    private final SpatialIndex<Boolean> index = new SpatialIndex<>();
+    private final SpatialIndex.IdVisitor entering = this::enter;
+    private Marker[] live = new Marker[16];
+    private int[] liveIndices = new int[16];
+    private int size;
+    private int liveCount;
+    private float margin = DEFAULT_MARGIN;
+    private boolean hasViewport;
+    private double south;
+    private double west;
+    private double north;
+    private double east;
+
+    public ViewportMarkers(GoogleMap map) {
+        this.map = map;
+    }
+
+    /**
+     * set the margin around the visible region, as a fraction of its width and height
+     *
+     * @param margin
+     */
+    public void setMargin(float margin) {
+        this.margin = margin;
+
+        if (hasViewport) {
+            onCameraIdle();
+        }
+    }
+
+    /**
+     * add virtual marker, return the marker if it's materialized immediately
+     *
+     * @param opts
+     * @return
+     */
+    public Marker add(MarkerOptions opts) {
+        return materialize(append(opts));
+    }
+
+    /**
+     * add virtual markers
+     *
+     * @param allOpts
+     */
+    public void addAll(Collection<MarkerOptions> allOpts) {
+        ensureCapacity(size + allOpts.size());
+
+        for (MarkerOptions opts : allOpts) {
+            materialize(append(opts));
+        }
+    }
+
+    /**
+     * add records of the POI file as virtual markers, a record is only read into marker options
+     * when it enters the viewport
+     *
+     * @param file
+     */
+    public void addAll(PoiFile file) {
+        int start = size;
+        int count = file.size();
+
+        ensureCapacity(size + count);
+
+        for (int i = 0; i < count; i++) {
+            index.add(file.getLatitude(i), file.getLongitude(i), Boolean.TRUE);
+            size++;
+        }
+
+        items.addAll(file);
+
+        for (int i = start; i < size; i++) {
+            materialize(i);
+        }
+    }
+
+    /**
+     * return the number of virtual markers
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * return the number of materialized markers
+     *
+     * @return
+     */
+    public int getLiveCount() {
+        return liveCount;
+    }
+
+    /**
+     * remove all virtual markers
+     */
+    public void clear() {
+        for (int i = 0; i < liveCount; i++) {
+            live[liveIndices[i]].remove();
+        }
+
+        items.clear();
+        index.clear();
+        live = new Marker[16];
+        liveIndices = new int[16];
+        size = 0;
+        liveCount = 0;
+    }
+
+    /**
+     * materialize markers entering the viewport and remove markers leaving it, must be called
+     * when the camera is idle
+     */
+    public void onCameraIdle() {
+        LatLngBounds bounds = map.getProjection().getVisibleRegion().latLngBounds;
+        double height = bounds.northeast.latitude - bounds.southwest.latitude;
+        double width = bounds.northeast.longitude - bounds.southwest.longitude;
+
+        if (width < 0) {
+            width += 360;
+        }
+
+        south = bounds.southwest.latitude - height * margin;
+        north = bounds.northeast.latitude + height * margin;
+        west = bounds.southwest.longitude - width * margin;
+        east = west + width * (1 + 2 * margin);
+        hasViewport = true;
+
+        int kept = 0;
+
+        for (int i = 0; i < liveCount; i++) {
+            int item = liveIndices[i];
+
+            if (contains(index.getLatitude(item), index.getLongitude(item))) {
+                liveIndices[kept++] = item;
+            } else {
+                live[item].remove();
+                live[item] = null;
+            }
+        }
+
+        liveCount = kept;
+
+        if (east - west >= 360) {
+            index.visit(south, -180, north, 180, entering);
+        } else {
+            index.visit(south, normalizeLongitude(west), north, normalizeLongitude(east), entering);
+        }
+    }
+
+    private void enter(int item) {
+        if (live[item] == null) {
+            addLive(item);
+        }
+    }
+
+    private int append(MarkerOptions opts) {
+        LatLng position = opts.getPosition();
+
+        ensureCapacity(size + 1);
+
+        items.add(opts);
+        index.add(position.latitude, position.longitude, Boolean.TRUE);
+
+        return size++;
+    }
+
+    private Marker materialize(int item) {
+        if (!hasViewport || !contains(index.getLatitude(item), index.getLongitude(item))) {
+            return null;
+        }
+
+        return addLive(item);
+    }
+
+    private Marker addLive(int item) {
+        live[item] = map.addMarker(items.get(item));
+        liveIndices[liveCount++] = item;
+
+        return live[item];
+    }
+
+    private boolean contains(double lat, double lng) {
+        if (lat < south || lat > north) {
+            return false;
+        }
+
+        if (east - west >= 360) {
+            return true;
+        }
+
+        double offset = lng - west;
+
+        offset -= Math.floor(offset / 360) * 360;
+
+        return offset <= east - west;
+    }
+
+    private static double normalizeLongitude(double lng) {
+        if (lng >= -180 && lng <= 180) {
+            return lng;
+        }
+
+        return lng - Math.floor((lng + 180) / 360) * 360;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > live.length) {
+            int newCapacity = Math.max(capacity, live.length * 2);
+
+            live = Arrays.copyOf(live, newCapacity);
+            liveIndices = Arrays.copyOf(liveIndices, newCapacity);
+        }
+    }
+}
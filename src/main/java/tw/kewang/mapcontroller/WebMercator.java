@@ -0,0 +1,78 @@
+package tw.kewang.mapcontroller;
+
+/**
+ * normalized web mercator projection, both axes are mapped to [0, 1)
+ *
+ * @author kewang
+ */
+final class WebMercator {
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    private WebMercator() {
+    }
+
+    /**
+     * project longitude to x
+     *
+     * @param lng
+     * @return
+     */
+    static double x(double lng) {
+        return (lng + 180) / 360;
+    }
+
+    /**
+     * project latitude to y, y grows to the south
+     *
+     * @param lat
+     * @return
+     */
+    static double y(double lat) {
+        double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat))));
+
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    /**
+     * unproject x to longitude
+     *
+     * @param x
+     * @return
+     */
+    static double lng(double x) {
+        return x * 360 - 180;
+    }
+
+    /**
+     * unproject y to latitude
+     *
+     * @param y
+     * @return
+     */
+    static double lat(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+
+    /**
+     * interleave the bits of the cell coordinates, cells close in Z-order are close in space
+     *
+     * @param x
+     * @param y
+     * @return
+     */
+    static long morton(int x, int y) {
+        return spread(x) | (spread(y) << 1);
+    }
+
+    private static long spread(int value) {
+        long v = value & 0xffffffffL;
+
+        v = (v | (v << 16)) & 0x0000ffff0000ffffL;
+        v = (v | (v << 8)) & 0x00ff00ff00ff00ffL;
+        v = (v | (v << 4)) & 0x0f0f0f0f0f0f0f0fL;
+        v = (v | (v << 2)) & 0x3333333333333333L;
+        v = (v | (v << 1)) & 0x5555555555555555L;
+
+        return v;
+    }
+}
@@ -0,0 +1,95 @@
+package tw.kewang.mapcontroller;
+
+import android.view.Choreographer;
+
+import com.google.android.gms.maps.CameraUpdateFactory;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CameraSchedulerTest {
+    private GoogleMap map;
+    private CameraScheduler scheduler;
+    private ArrayList<CameraPosition> changed;
+
+    @Before
+    public void setUp() {
+        map = new GoogleMap();
+        scheduler = new CameraScheduler(map);
+        changed = new ArrayList<>();
+    }
+
+    @Test
+    public void coalescesUpdatesWithinFrame() {
+        scheduler.schedule(CameraUpdateFactory.newLatLng(new LatLng(1, 1)), true, (m, position) -> changed.add(position));
+        scheduler.schedule(CameraUpdateFactory.newLatLng(new LatLng(2, 2)), true, (m, position) -> changed.add(position));
+        scheduler.schedule(CameraUpdateFactory.newLatLng(new LatLng(3, 3)), true, (m, position) -> changed.add(position));
+
+        assertEquals(0, map.getCallCount());
+        assertTrue(Choreographer.getInstance().doFrame(0));
+
+        // one animateCamera, and one getCameraPosition for the callbacks
+        assertEquals(2, map.getCallCount());
+        assertEquals(new LatLng(3, 3), map.getCameraPosition().target);
+        assertEquals(3, changed.size());
+
+        for (CameraPosition position : changed) {
+            assertEquals(new LatLng(3, 3), position.target);
+        }
+
+        assertFalse(Choreographer.getInstance().doFrame(1));
+    }
+
+    @Test
+    public void updatesOfLaterFramesAreNotCoalesced() {
+        scheduler.schedule(CameraUpdateFactory.newLatLng(new LatLng(1, 1)), false, null);
+
+        Choreographer.getInstance().doFrame(0);
+
+        scheduler.schedule(CameraUpdateFactory.newLatLng(new LatLng(2, 2)), false, null);
+
+        Choreographer.getInstance().doFrame(1);
+
+        assertEquals(2, map.getCallCount());
+        assertEquals(new LatLng(2, 2), map.getCameraPosition().target);
+    }
+
+    @Test
+    public void moveCallbacksWaitForIdle() {
+        scheduler.schedule(CameraUpdateFactory.newLatLng(new LatLng(1, 1)), false, (m, position) -> changed.add(position));
+        scheduler.schedule(CameraUpdateFactory.newLatLng(new LatLng(2, 2)), false, (m, position) -> changed.add(position));
+
+        Choreographer.getInstance().doFrame(0);
+
+        assertTrue(changed.isEmpty());
+
+        scheduler.onCameraIdle();
+
+        assertEquals(2, changed.size());
+        assertEquals(new LatLng(2, 2), changed.get(1).target);
+
+        scheduler.onCameraIdle();
+
+        assertEquals(2, changed.size());
+    }
+
+    @Test
+    public void cancelDropsPendingUpdates() {
+        scheduler.schedule(CameraUpdateFactory.newLatLng(new LatLng(1, 1)), true, (m, position) -> changed.add(position));
+
+        scheduler.cancel();
+
+        assertFalse(Choreographer.getInstance().doFrame(0));
+        assertEquals(0, map.getCallCount());
+        assertTrue(changed.isEmpty());
+    }
+}
@@ -0,0 +1,124 @@
+package tw.kewang.mapcontroller;
+
+import android.location.Address;
+import android.os.Looper;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FindAllTaskTest {
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    @Test
+    public void resultsFollowTheLocationsAndEquivalentQueriesShareOneLookup() throws Exception {
+        ConcurrentHashMap<String, AtomicInteger> lookups = new ConcurrentHashMap<>();
+        List<String> locations = Arrays.asList("Taipei", "Tainan", " taipei ", "Kaohsiung", "TAINAN");
+        ArrayList<ArrayList<ArrayList<Address>>> delivered = new ArrayList<>();
+        FindAllTask task = new FindAllTask(locations, TIMEOUT_MILLIS, location -> {
+            lookups.computeIfAbsent(GeocodeCache.normalize(location), key -> new AtomicInteger()).incrementAndGet();
+
+            // the first query finishes last
+            if (location.equals("Taipei")) {
+                Thread.sleep(50);
+            }
+
+            return addresses(location.trim().toLowerCase(Locale.ROOT));
+        }, delivered::add);
+
+        task.start();
+
+        runUntilDone(task);
+
+        assertEquals(3, task.getQueryCount());
+        assertEquals(3, task.getCompletedCount());
+        assertEquals(3, lookups.size());
+
+        for (AtomicInteger count : lookups.values()) {
+            assertEquals(1, count.get());
+        }
+
+        assertEquals(1, delivered.size());
+
+        ArrayList<ArrayList<Address>> results = delivered.get(0);
+
+        assertEquals(locations.size(), results.size());
+
+        for (int i = 0; i < locations.size(); i++) {
+            assertEquals(locations.get(i).trim().toLowerCase(Locale.ROOT), results.get(i).get(0).getFeatureName());
+        }
+
+        assertSame(results.get(0), results.get(2));
+        assertSame(results.get(1), results.get(4));
+    }
+
+    @Test
+    public void slowLookupTimesOutWithoutAddresses() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        ArrayList<ArrayList<ArrayList<Address>>> delivered = new ArrayList<>();
+        FindAllTask task = new FindAllTask(Arrays.asList("fast", "slow", "later"), 100, location -> {
+            if (location.equals("slow")) {
+                blocked.await();
+            }
+
+            return addresses(location);
+        }, delivered::add);
+
+        task.start();
+
+        runUntilDone(task);
+
+        ArrayList<ArrayList<Address>> results = delivered.get(0);
+
+        assertEquals("fast", results.get(0).get(0).getFeatureName());
+        assertTrue(results.get(1).isEmpty());
+        assertEquals("later", results.get(2).get(0).getFeatureName());
+
+        blocked.countDown();
+    }
+
+    @Test
+    public void emptyLocationsCompleteAtOnce() throws Exception {
+        ArrayList<ArrayList<ArrayList<Address>>> delivered = new ArrayList<>();
+        FindAllTask task = new FindAllTask(Collections.emptyList(), TIMEOUT_MILLIS, location -> addresses(location), delivered::add);
+
+        task.start();
+
+        runUntilDone(task);
+
+        assertNotNull(delivered.get(0));
+        assertTrue(delivered.get(0).isEmpty());
+    }
+
+    private static ArrayList<Address> addresses(String featureName) {
+        Address address = new Address(Locale.ROOT);
+
+        address.setFeatureName(featureName);
+
+        return new ArrayList<>(Collections.singletonList(address));
+    }
+
+    private static void runUntilDone(FindAllTask task) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while (!task.isDone()) {
+            assertTrue("task didn't finish", System.currentTimeMillis() < deadline);
+
+            Looper.getMainLooper().runPending();
+
+            Thread.sleep(1);
+        }
+    }
+}
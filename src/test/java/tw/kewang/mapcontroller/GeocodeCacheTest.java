@@ -0,0 +1,96 @@
+package tw.kewang.mapcontroller;
+
+import android.location.Address;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GeocodeCacheTest {
+    @Test
+    public void persistsEveryAddressField() throws Exception {
+        File dir = Files.createTempDirectory("geocode").toFile();
+        File file = new File(dir, "geocode.bin");
+
+        Address address = new Address(Locale.TAIWAN);
+
+        address.setLatitude(25.0339);
+        address.setLongitude(121.5645);
+        address.setFeatureName("Taipei 101");
+        address.setAdminArea("Taipei City");
+        address.setSubAdminArea("Xinyi District");
+        address.setLocality("Taipei");
+        address.setSubLocality("Xinyi");
+        address.setThoroughfare("Xinyi Road");
+        address.setSubThoroughfare("7");
+        address.setPremises("Tower");
+        address.setPostalCode("110");
+        address.setCountryCode("TW");
+        address.setCountryName("Taiwan");
+        address.setPhone("+886 2 8101 8800");
+        address.setUrl("https://www.taipei-101.com.tw");
+        address.setAddressLine(0, "No. 7, Section 5, Xinyi Road");
+        address.setAddressLine(1, "Taipei 110");
+
+        Address noLocation = new Address(Locale.TAIWAN);
+
+        noLocation.setFeatureName("Somewhere");
+
+        ArrayList<Address> addresses = new ArrayList<>();
+
+        addresses.add(address);
+        addresses.add(noLocation);
+
+        new GeocodeCache(file, 16, GeocodeCache.DEFAULT_TTL_MILLIS).put("taipei 101", addresses);
+
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while (!file.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+
+        ArrayList<Address> loaded = new GeocodeCache(file, 16, GeocodeCache.DEFAULT_TTL_MILLIS).get("taipei 101");
+
+        assertNotNull(loaded);
+        assertEquals(2, loaded.size());
+
+        Address copy = loaded.get(0);
+
+        assertEquals(Locale.TAIWAN, copy.getLocale());
+        assertEquals(25.0339, copy.getLatitude(), 0);
+        assertEquals(121.5645, copy.getLongitude(), 0);
+        assertEquals("Taipei 101", copy.getFeatureName());
+        assertEquals("Taipei City", copy.getAdminArea());
+        assertEquals("Xinyi District", copy.getSubAdminArea());
+        assertEquals("Taipei", copy.getLocality());
+        assertEquals("Xinyi", copy.getSubLocality());
+        assertEquals("Xinyi Road", copy.getThoroughfare());
+        assertEquals("7", copy.getSubThoroughfare());
+        assertEquals("Tower", copy.getPremises());
+        assertEquals("110", copy.getPostalCode());
+        assertEquals("TW", copy.getCountryCode());
+        assertEquals("Taiwan", copy.getCountryName());
+        assertEquals("+886 2 8101 8800", copy.getPhone());
+        assertEquals("https://www.taipei-101.com.tw", copy.getUrl());
+        assertEquals(1, copy.getMaxAddressLineIndex());
+        assertEquals("No. 7, Section 5, Xinyi Road", copy.getAddressLine(0));
+        assertEquals("Taipei 110", copy.getAddressLine(1));
+
+        Address other = loaded.get(1);
+
+        assertFalse(other.hasLatitude());
+        assertFalse(other.hasLongitude());
+        assertEquals("Somewhere", other.getFeatureName());
+        assertNull(other.getLocality());
+        assertTrue(other.getMaxAddressLineIndex() < 0);
+    }
+}
@@ -0,0 +1,39 @@
+package tw.kewang.mapcontroller;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HeatmapTileProviderTest {
+    @Test
+    public void buildSortsPointsInZOrder() {
+        double[] lats = {60, -60, 60, -60};
+        double[] lngs = {120, -120, -120, 120};
+
+        HeatmapTileProvider.Dataset dataset = HeatmapTileProvider.build(lats, lngs, 4);
+
+        for (int i = 1; i < 4; i++) {
+            assertTrue(dataset.codes[i - 1] < dataset.codes[i]);
+        }
+
+        assertEquals(WebMercator.x(-120), dataset.xs[0], 0);
+        assertEquals(WebMercator.y(60), dataset.ys[0], 0);
+        assertEquals(WebMercator.x(120), dataset.xs[3], 0);
+        assertEquals(WebMercator.y(-60), dataset.ys[3], 0);
+    }
+
+    @Test
+    public void buildKeepsPixelPrecisionAtHighZoom() {
+        // about 10 cm apart, 1.5 pixels at zoom 21
+        double[] lats = {25.0339, 25.0339};
+        double[] lngs = {121.5645, 121.5645 + 1e-6};
+
+        HeatmapTileProvider.Dataset dataset = HeatmapTileProvider.build(lats, lngs, 2);
+        double pixels = (dataset.xs[1] - dataset.xs[0]) * (1 << 21) * 256;
+
+        assertEquals(WebMercator.x(lngs[0]), dataset.xs[0], 0);
+        assertEquals(WebMercator.x(lngs[1]), dataset.xs[1], 0);
+        assertEquals(1.5, pixels, 0.1);
+    }
+}
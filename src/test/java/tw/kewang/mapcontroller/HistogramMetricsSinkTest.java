@@ -0,0 +1,80 @@
+package tw.kewang.mapcontroller;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramMetricsSinkTest {
+    @Test
+    public void smallValuesHaveExactBuckets() {
+        for (int value = 0; value < 8; value++) {
+            assertEquals(value, HistogramMetricsSink.bucketOf(value));
+            assertEquals(value, HistogramMetricsSink.upperBoundOf(value));
+        }
+    }
+
+    @Test
+    public void bucketsContainTheirValues() {
+        long[] values = {8, 9, 15, 16, 17, 100, 1_000, 999_999, 1_000_000_000L, Long.MAX_VALUE};
+
+        for (long value : values) {
+            int bucket = HistogramMetricsSink.bucketOf(value);
+            long upper = HistogramMetricsSink.upperBoundOf(bucket);
+            long lower = bucket == 0 ? 0 : HistogramMetricsSink.upperBoundOf(bucket - 1) + 1;
+
+            assertTrue(value + " in [" + lower + ", " + upper + "]", value >= lower && value <= upper);
+            // 8 buckets per power of two
+            assertTrue(upper - lower <= value / 8);
+        }
+    }
+
+    @Test
+    public void bucketsAreContiguous() {
+        for (int bucket = 1; bucket < 200; bucket++) {
+            long lower = HistogramMetricsSink.upperBoundOf(bucket - 1) + 1;
+
+            assertEquals(bucket, HistogramMetricsSink.bucketOf(lower));
+            assertEquals(bucket, HistogramMetricsSink.bucketOf(HistogramMetricsSink.upperBoundOf(bucket)));
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        HistogramMetricsSink sink = new HistogramMetricsSink();
+
+        for (int i = 1; i <= 1000; i++) {
+            sink.latency(MetricsSink.LATENCY_FIND, i * 1_000L);
+        }
+
+        assertEquals(1000, sink.getLatencyCount(MetricsSink.LATENCY_FIND));
+        assertEquals(500_500, sink.getLatencyMean(MetricsSink.LATENCY_FIND));
+        assertEquals(1_000_000, sink.getLatencyMax(MetricsSink.LATENCY_FIND));
+        assertEquals(1_000_000, sink.getLatencyPercentile(MetricsSink.LATENCY_FIND, 100));
+
+        long median = sink.getLatencyPercentile(MetricsSink.LATENCY_FIND, 50);
+
+        assertTrue(median >= 500_000 && median <= 500_000 * 1.125);
+        assertEquals(0, sink.getLatencyPercentile(MetricsSink.LATENCY_ADD_MARKERS, 50));
+    }
+
+    @Test
+    public void countersAndReset() {
+        HistogramMetricsSink sink = new HistogramMetricsSink();
+
+        sink.mapCalls(MetricsSink.OP_ADD_MARKERS, 3);
+        sink.mapCalls(MetricsSink.OP_ADD_MARKERS, 2);
+        sink.count(MetricsSink.COUNT_FIXES, 1);
+        sink.latency(MetricsSink.LATENCY_FIND, -5);
+
+        assertEquals(5, sink.getMapCalls(MetricsSink.OP_ADD_MARKERS));
+        assertEquals(1, sink.getCount(MetricsSink.COUNT_FIXES));
+        assertEquals(0, sink.getLatencyMax(MetricsSink.LATENCY_FIND));
+
+        sink.reset();
+
+        assertEquals(0, sink.getMapCalls(MetricsSink.OP_ADD_MARKERS));
+        assertEquals(0, sink.getCount(MetricsSink.COUNT_FIXES));
+        assertEquals(0, sink.getLatencyCount(MetricsSink.LATENCY_FIND));
+    }
+}
@@ -0,0 +1,139 @@
+package tw.kewang.mapcontroller;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MarkerStoreTest {
+    @Test
+    public void addAndGet() {
+        MarkerStore<String> store = new MarkerStore<>();
+        int a = store.add(25, 121, 1, "a");
+        int b = store.add(-33, 151, 2, "b");
+
+        assertEquals(2, store.size());
+        assertEquals("a", store.get(a));
+        assertEquals("b", store.get(b));
+        assertEquals(-33, store.getLatitude(b), 0);
+        assertEquals(151, store.getLongitude(b), 0);
+        assertEquals(2, store.getFlags(b));
+        assertEquals(-1, store.getLink(a));
+    }
+
+    @Test
+    public void negativeIdDoesNotExist() {
+        MarkerStore<String> store = new MarkerStore<>();
+        int a = store.add(25, 121, 0, "a");
+
+        assertNull(store.get(-1));
+        assertFalse(store.contains(-1));
+        assertFalse(store.remove(-1));
+        assertEquals(1, store.size());
+        assertEquals("a", store.get(a));
+    }
+
+    @Test
+    public void removeSwapsLastSlot() {
+        MarkerStore<String> store = new MarkerStore<>();
+        int a = store.add(1, 1, 0, "a");
+        int b = store.add(2, 2, 0, "b");
+        int c = store.add(3, 3, 0, "c");
+
+        store.setLink(c, 7);
+
+        assertTrue(store.remove(a));
+        assertFalse(store.remove(a));
+        assertFalse(store.contains(a));
+        assertNull(store.get(a));
+        assertEquals(2, store.size());
+        assertEquals(0, store.slotOf(c));
+        assertEquals(c, store.idAt(0));
+        assertEquals("c", store.valueAt(0));
+        assertEquals(3, store.latitudeAt(0), 0);
+        assertEquals(7, store.getLink(c));
+        assertEquals("b", store.get(b));
+    }
+
+    @Test
+    public void idsAreNotReused() {
+        MarkerStore<String> store = new MarkerStore<>();
+        int a = store.add(0, 0, 0, "a");
+
+        store.remove(a);
+
+        int b = store.add(0, 0, 0, "b");
+
+        assertTrue(b != a);
+        assertNull(store.get(a));
+        assertEquals("b", store.get(b));
+    }
+
+    @Test
+    public void setters() {
+        MarkerStore<String> store = new MarkerStore<>();
+        int a = store.add(0, 0, 0, "a");
+
+        store.setFlags(a, 5);
+        store.setPosition(a, 10, 20);
+
+        assertEquals(5, store.getFlags(a));
+        assertEquals(5, store.flagsAt(store.slotOf(a)));
+        assertEquals(10, store.getLatitude(a), 0);
+        assertEquals(20, store.longitudeAt(store.slotOf(a)), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownIdThrows() {
+        new MarkerStore<String>().getLatitude(42);
+    }
+
+    @Test
+    public void clear() {
+        MarkerStore<String> store = new MarkerStore<>();
+        int a = store.add(0, 0, 0, "a");
+
+        store.clear();
+
+        assertEquals(0, store.size());
+        assertFalse(store.contains(a));
+        assertEquals("b", store.get(store.add(0, 0, 0, "b")));
+    }
+
+    @Test
+    public void matchesMapUnderRandomOperations() {
+        MarkerStore<Integer> store = new MarkerStore<>();
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(1);
+
+        for (int i = 0; i < 100_000; i++) {
+            if (expected.isEmpty() || random.nextInt(3) != 0) {
+                int value = random.nextInt();
+
+                expected.put(store.add(0, 0, 0, value), value);
+            } else {
+                int id = store.idAt(random.nextInt(store.size()));
+
+                assertTrue(store.remove(id));
+
+                expected.remove(id);
+            }
+        }
+
+        assertEquals(expected.size(), store.size());
+
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), store.get(entry.getKey()));
+        }
+
+        for (int slot = 0; slot < store.size(); slot++) {
+            assertEquals(slot, store.slotOf(store.idAt(slot)));
+        }
+    }
+}
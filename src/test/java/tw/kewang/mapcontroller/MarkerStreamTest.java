@@ -0,0 +1,179 @@
+package tw.kewang.mapcontroller;
+
+import android.view.Choreographer;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MarkerStreamTest {
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    @Test
+    public void completesWhenSourceIsExhausted() throws Exception {
+        GoogleMap map = new GoogleMap();
+        Source source = new Source(5, null);
+        Callback callback = new Callback();
+        MarkerStream stream = start(map, source, callback);
+
+        runUntilFinished(stream);
+
+        assertEquals(5, map.getMarkerCount());
+        assertEquals(5, stream.getLoaded());
+        assertEquals(5, callback.completed);
+        assertNull(callback.error);
+        assertNull(stream.getError());
+        assertTrue(source.closed.get());
+    }
+
+    @Test
+    public void reportsIOException() throws Exception {
+        GoogleMap map = new GoogleMap();
+        IOException error = new IOException("broken");
+        Source source = new Source(3, error);
+        Callback callback = new Callback();
+        MarkerStream stream = start(map, source, callback);
+
+        runUntilFinished(stream);
+
+        assertEquals(3, map.getMarkerCount());
+        assertEquals(3, callback.failedLoaded);
+        assertSame(error, callback.error);
+        assertSame(error, stream.getError());
+        assertEquals(-1, callback.completed);
+        assertTrue(source.closed.get());
+    }
+
+    @Test
+    public void reportsRuntimeException() throws Exception {
+        GoogleMap map = new GoogleMap();
+        IllegalStateException error = new IllegalStateException("broken");
+        Source source = new Source(2, error);
+        Callback callback = new Callback();
+        MarkerStream stream = start(map, source, callback);
+
+        runUntilFinished(stream);
+
+        assertEquals(2, map.getMarkerCount());
+        assertEquals(2, callback.failedLoaded);
+        assertSame(error, callback.error);
+        assertEquals(-1, callback.completed);
+        assertTrue(source.closed.get());
+    }
+
+    @Test
+    public void cancelClosesSourceWithoutCallback() throws Exception {
+        GoogleMap map = new GoogleMap();
+        Source source = new Source(Integer.MAX_VALUE, null);
+        Callback callback = new Callback();
+        MarkerStream stream = start(map, source, callback);
+
+        Choreographer.getInstance().doFrame(System.nanoTime());
+
+        stream.cancel();
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while (!source.closed.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+
+        assertTrue(source.closed.get());
+        assertTrue(stream.isCancelled());
+        assertFalse(stream.isFinished());
+        assertFalse(Choreographer.getInstance().doFrame(System.nanoTime()));
+        assertEquals(-1, callback.completed);
+        assertNull(callback.error);
+    }
+
+    private static MarkerStream start(GoogleMap map, MarkerSource source, Callback callback) {
+        MarkerStream stream = new MarkerStream(map, source, 2, MarkerLoader.DEFAULT_FRAME_BUDGET_NANOS, (marker, opts) -> {
+        }, callback);
+
+        stream.start();
+
+        return stream;
+    }
+
+    private static void runUntilFinished(MarkerStream stream) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while (!stream.isFinished()) {
+            assertTrue("stream didn't finish", System.currentTimeMillis() < deadline);
+
+            Choreographer.getInstance().doFrame(System.nanoTime());
+
+            Thread.sleep(1);
+        }
+
+        assertFalse(Choreographer.getInstance().doFrame(System.nanoTime()));
+    }
+
+    private static class Source implements MarkerSource {
+        private final int count;
+        private final Exception error;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private int next;
+
+        Source(int count, Exception error) {
+            this.count = count;
+            this.error = error;
+        }
+
+        @Override
+        public MarkerOptions next() throws IOException {
+            if (next == count) {
+                if (error instanceof IOException) {
+                    throw (IOException) error;
+                }
+
+                if (error != null) {
+                    throw (RuntimeException) error;
+                }
+
+                return null;
+            }
+
+            next++;
+
+            return new MarkerOptions().position(new LatLng(next, next));
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+
+    private static class Callback implements MapController.LoadMarkers {
+        private int completed = -1;
+        private int failedLoaded = -1;
+        private Exception error;
+
+        @Override
+        public void progress(GoogleMap map, int loaded, int total) {
+        }
+
+        @Override
+        public void completed(GoogleMap map, int total) {
+            completed = total;
+        }
+
+        @Override
+        public void failed(GoogleMap map, int loaded, Exception error) {
+            failedLoaded = loaded;
+            this.error = error;
+        }
+    }
+}
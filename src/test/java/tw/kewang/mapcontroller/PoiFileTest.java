@@ -0,0 +1,89 @@
+package tw.kewang.mapcontroller;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PoiFileTest {
+    @Test
+    public void roundTrip() throws IOException {
+        PoiWriter writer = new PoiWriter();
+
+        writer.add(25.0339639, 121.5644722, 3, "Taipei 101", "\u4fe1\u7fa9\u5340");
+        writer.add(-33.8567844, 151.2152967, 7, null, null);
+        writer.add(25.0339639, 121.5644722, 3, "Taipei 101", "\u4fe1\u7fa9\u5340");
+
+        PoiFile file = PoiFile.wrap(ByteBuffer.wrap(write(writer)));
+
+        assertEquals(3, file.size());
+        assertFalse(file.isSpatiallySorted());
+        assertEquals(25.0339639, file.getLatitude(0), 1e-7);
+        assertEquals(121.5644722, file.getLongitude(0), 1e-7);
+        assertEquals(3, file.getCategory(0));
+        assertEquals("Taipei 101", file.getTitle(0));
+        assertEquals("\u4fe1\u7fa9\u5340", file.getSnippet(0));
+        assertEquals(-33.8567844, file.getLatitude(1), 1e-7);
+        assertEquals(151.2152967, file.getLongitude(1), 1e-7);
+        assertEquals(7, file.getCategory(1));
+        assertNull(file.getTitle(1));
+        assertNull(file.getSnippet(1));
+        assertEquals("Taipei 101", file.getTitle(2));
+    }
+
+    @Test
+    public void spatialSortKeepsRecords() throws IOException {
+        PoiWriter writer = new PoiWriter();
+        Random random = new Random(1);
+        double sum = 0;
+
+        writer.setSpatialSort(true);
+
+        for (int i = 0; i < 1000; i++) {
+            double lat = random.nextDouble() * 170 - 85;
+
+            writer.add(lat, random.nextDouble() * 360 - 180, i, "poi " + i, null);
+
+            sum += lat;
+        }
+
+        PoiFile file = PoiFile.wrap(ByteBuffer.wrap(write(writer)));
+        double readSum = 0;
+
+        assertTrue(file.isSpatiallySorted());
+        assertEquals(1000, file.size());
+
+        for (int i = 0; i < file.size(); i++) {
+            readSum += file.getLatitude(i);
+
+            assertEquals("poi " + file.getCategory(i), file.getTitle(i));
+        }
+
+        assertEquals(sum, readSum, 1e-4);
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidFileIsRejected() throws IOException {
+        PoiFile.wrap(ByteBuffer.wrap(new byte[PoiFile.HEADER_SIZE]));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void indexIsChecked() throws IOException {
+        PoiFile.wrap(ByteBuffer.wrap(write(new PoiWriter()))).getLatitude(0);
+    }
+
+    private static byte[] write(PoiWriter writer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        writer.write(out);
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,104 @@
+package tw.kewang.mapcontroller;
+
+import android.content.Context;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SetMarkersTest {
+    private GoogleMap map;
+    private MapController controller;
+
+    @Before
+    public void setUp() {
+        map = new GoogleMap();
+        controller = new MapController(new Context(new File(System.getProperty("java.io.tmpdir"))), map);
+    }
+
+    @Test
+    public void addsUpdatesAndRemovesByKey() {
+        controller.setMarkers(Arrays.asList(keyed("a", 1, 1), keyed("b", 2, 2), keyed("c", 3, 3)));
+
+        Marker a = controller.getKeyedMarker("a");
+        Marker b = controller.getKeyedMarker("b");
+        Marker c = controller.getKeyedMarker("c");
+
+        controller.setMarkers(Arrays.asList(keyed("b", 5, 5), keyed("c", 3, 3), keyed("d", 4, 4)));
+
+        assertTrue(a.isRemoved());
+        assertNull(controller.getKeyedMarker("a"));
+        assertSame(b, controller.getKeyedMarker("b"));
+        assertEquals(new LatLng(5, 5), b.getPosition());
+        assertSame(c, controller.getKeyedMarker("c"));
+        assertFalse(c.isRemoved());
+        assertEquals(3, map.getMarkerCount());
+        assertSame(b, controller.getMarkerById(controller.getMarkerId(b)));
+        assertEquals(controller.getMarkerId(b), controller.getMarkerId(controller.getKeyedMarker("b")));
+        assertEquals(1, controller.queryBounds(new LatLngBounds(new LatLng(4.5, 4.5), new LatLng(5.5, 5.5))).size());
+    }
+
+    @Test
+    public void unchangedMarkersCostNoCalls() {
+        controller.setMarkers(Arrays.asList(keyed("a", 1, 1), keyed("b", 2, 2)));
+
+        map.resetCallCount();
+
+        controller.setMarkers(Arrays.asList(keyed("b", 2, 2), keyed("a", 1, 1)));
+
+        assertEquals(0, map.getCallCount());
+
+        controller.setMarkers(Arrays.asList(keyed("a", 1, 1), new KeyedMarkerOptions("b", new MarkerOptions().position(new LatLng(2, 2)).title("b"))));
+
+        assertEquals(1, map.getCallCount());
+    }
+
+    @Test
+    public void iconKeysAvoidSettingEqualIcons() {
+        controller.setMarkers(Arrays.asList(new KeyedMarkerOptions("a", new MarkerOptions().position(new LatLng(1, 1)).icon(BitmapDescriptorFactory.defaultMarker()), "red")));
+
+        map.resetCallCount();
+
+        controller.setMarkers(Arrays.asList(new KeyedMarkerOptions("a", new MarkerOptions().position(new LatLng(1, 1)).icon(BitmapDescriptorFactory.defaultMarker()), "red")));
+
+        assertEquals(0, map.getCallCount());
+
+        controller.setMarkers(Arrays.asList(new KeyedMarkerOptions("a", new MarkerOptions().position(new LatLng(1, 1)).icon(BitmapDescriptorFactory.defaultMarker()), "blue")));
+
+        assertEquals(1, map.getCallCount());
+    }
+
+    @Test
+    public void repeatedKeyKeepsOneMarker() {
+        controller.setMarkers(Arrays.asList(keyed("a", 1, 1), keyed("a", 2, 2)));
+
+        assertEquals(1, map.getMarkerCount());
+        assertEquals(1, controller.getMarkerCount());
+        assertEquals(new LatLng(2, 2), controller.getKeyedMarker("a").getPosition());
+
+        controller.setMarkers(new ArrayList<>());
+
+        assertEquals(0, map.getMarkerCount());
+        assertEquals(0, controller.getMarkerCount());
+    }
+
+    private static KeyedMarkerOptions keyed(String key, double lat, double lng) {
+        return new KeyedMarkerOptions(key, new MarkerOptions().position(new LatLng(lat, lng)));
+    }
+}
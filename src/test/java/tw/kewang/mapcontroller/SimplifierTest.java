@@ -0,0 +1,75 @@
+package tw.kewang.mapcontroller;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SimplifierTest {
+    @Test
+    public void collinearPointsAreDropped() {
+        double[] xs = {0, 1, 2, 3, 4};
+        double[] ys = {0, 0, 0, 0, 0};
+        int[] out = new int[5];
+
+        int count = Simplifier.simplify(xs, ys, 0, 4, 0.1, out);
+
+        assertEquals(2, count);
+        assertEquals(0, out[0]);
+        assertEquals(4, out[1]);
+    }
+
+    @Test
+    public void cornersAboveToleranceAreKept() {
+        double[] xs = {0, 1, 2, 3, 4};
+        double[] ys = {0, 1.05, 2, 1.05, 0};
+        int[] out = new int[5];
+
+        int count = Simplifier.simplify(xs, ys, 0, 4, 0.1, out);
+
+        assertArrayEquals(new int[]{0, 2, 4}, Arrays.copyOf(out, count));
+    }
+
+    @Test
+    public void zeroToleranceKeepsEveryCorner() {
+        double[] xs = {0, 1, 2, 3};
+        double[] ys = {0, 1, 0, 1};
+        int[] out = new int[4];
+
+        assertEquals(4, Simplifier.simplify(xs, ys, 0, 3, 0, out));
+    }
+
+    @Test
+    public void rangeIsRespected() {
+        double[] xs = {9, 0, 1, 2, 9};
+        double[] ys = {9, 0, 0, 0, 9};
+        int[] out = new int[3];
+
+        int count = Simplifier.simplify(xs, ys, 1, 3, 0.1, out);
+
+        assertEquals(2, count);
+        assertEquals(1, out[0]);
+        assertEquals(3, out[1]);
+    }
+
+    @Test
+    public void shortRangesAreKept() {
+        double[] xs = {0, 1};
+        double[] ys = {0, 1};
+        int[] out = new int[2];
+
+        assertEquals(2, Simplifier.simplify(xs, ys, 0, 1, 10, out));
+        assertEquals(1, Simplifier.simplify(xs, ys, 1, 1, 10, out));
+        assertEquals(1, out[0]);
+    }
+
+    @Test
+    public void squaredSegmentDistance() {
+        // perpendicular, beyond the end and a degenerate segment
+        assertEquals(4, Simplifier.squaredSegmentDistance(1, 2, 0, 0, 2, 0), 1e-12);
+        assertEquals(2, Simplifier.squaredSegmentDistance(3, 1, 0, 0, 2, 0), 1e-12);
+        assertEquals(25, Simplifier.squaredSegmentDistance(3, 4, 0, 0, 0, 0), 1e-12);
+    }
+}
@@ -0,0 +1,133 @@
+package tw.kewang.mapcontroller;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SpatialIndexTest {
+    @Test
+    public void queryBounds() {
+        SpatialIndex<String> index = new SpatialIndex<>();
+
+        index.add(25.03, 121.56, "taipei");
+        index.add(22.62, 120.30, "kaohsiung");
+        index.add(35.68, 139.69, "tokyo");
+
+        ArrayList<String> out = new ArrayList<>();
+
+        index.queryBounds(22, 120, 26, 122, out);
+
+        Collections.sort(out);
+
+        assertEquals(2, out.size());
+        assertEquals("kaohsiung", out.get(0));
+        assertEquals("taipei", out.get(1));
+    }
+
+    @Test
+    public void queryBoundsAcrossAntimeridian() {
+        SpatialIndex<String> index = new SpatialIndex<>();
+
+        index.add(-17.7, 178.0, "fiji");
+        index.add(-14.3, -170.7, "samoa");
+        index.add(-33.9, 151.2, "sydney");
+
+        ArrayList<String> out = new ArrayList<>();
+
+        index.queryBounds(-20, 170, -10, -165, out);
+
+        Collections.sort(out);
+
+        assertEquals(2, out.size());
+        assertEquals("fiji", out.get(0));
+        assertEquals("samoa", out.get(1));
+    }
+
+    @Test
+    public void remove() {
+        SpatialIndex<String> index = new SpatialIndex<>();
+        int a = index.add(1, 1, "a");
+        int b = index.add(1, 1, "b");
+
+        index.remove(a);
+
+        ArrayList<String> out = new ArrayList<>();
+
+        index.queryBounds(0, 0, 2, 2, out);
+
+        assertEquals(1, index.size());
+        assertNull(index.get(a));
+        assertEquals("b", index.get(b));
+        assertEquals(1, out.size());
+        assertEquals("b", out.get(0));
+    }
+
+    @Test
+    public void withinRadius() {
+        SpatialIndex<String> index = new SpatialIndex<>();
+
+        index.add(25.0, 121.0, "center");
+        index.add(25.0, 121.005, "east");
+        index.add(25.1, 121.0, "north");
+
+        ArrayList<String> out = new ArrayList<>();
+
+        // 0.005 degrees of longitude at 25 degrees are about 504 meters
+        index.withinRadius(25.0, 121.0, 600, out);
+
+        Collections.sort(out);
+
+        assertEquals(2, out.size());
+        assertEquals("center", out.get(0));
+        assertEquals("east", out.get(1));
+    }
+
+    @Test
+    public void nearestMatchesBruteForce() {
+        SpatialIndex<Integer> index = new SpatialIndex<>();
+        Random random = new Random(1);
+        int count = 5_000;
+        double[] lats = new double[count];
+        double[] lngs = new double[count];
+
+        for (int i = 0; i < count; i++) {
+            lats[i] = 24 + random.nextDouble() * 2;
+            lngs[i] = 120 + random.nextDouble() * 2;
+
+            index.add(lats[i], lngs[i], i);
+        }
+
+        for (int query = 0; query < 50; query++) {
+            double lat = 24 + random.nextDouble() * 2;
+            double lng = 120 + random.nextDouble() * 2;
+            List<Integer> out = new ArrayList<>();
+
+            index.nearest(lat, lng, 10, out);
+
+            ArrayList<Integer> expected = new ArrayList<>();
+
+            for (int i = 0; i < count; i++) {
+                expected.add(i);
+            }
+
+            expected.sort((a, b) -> Double.compare(SpatialIndex.distance(lat, lng, lats[a], lngs[a]), SpatialIndex.distance(lat, lng, lats[b], lngs[b])));
+
+            assertEquals(expected.subList(0, 10), out);
+        }
+    }
+
+    @Test
+    public void distance() {
+        // one degree of latitude
+        double meters = SpatialIndex.distance(0, 0, 1, 0);
+
+        assertEquals(SpatialIndex.METERS_PER_DEGREE, meters, 1);
+        assertEquals(0, SpatialIndex.distance(25, 121, 25, 121), 0);
+    }
+}
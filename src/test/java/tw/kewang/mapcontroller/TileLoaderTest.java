@@ -0,0 +1,166 @@
+package tw.kewang.mapcontroller;
+
+import android.os.Looper;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TileLoaderTest {
+    private static final long TIMEOUT_MILLIS = 5000;
+    // the x tiles 857 and 858 of zoom 10 meet at this longitude
+    private static final double TILE_EDGE = -180 + 360 * 858 / 1024.0;
+
+    private final ArrayList<List<Object>> published = new ArrayList<>();
+    private TileLoader loader;
+
+    @After
+    public void tearDown() {
+        loader.stop();
+    }
+
+    @Test
+    public void staleLoadIsCancelledAndNeverPublished() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+
+        loader = create((zoom, x, y, south, west, north, east) -> {
+            if (x == 857) {
+                started.countDown();
+
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+
+                    throw new IOException("cancelled");
+                }
+            }
+
+            return tile(zoom, x, y, south, west, north, east);
+        });
+
+        loader.changed(null, 25.03, TILE_EDGE - 0.02, 25.04, TILE_EDGE - 0.01, 10, true);
+
+        assertEquals(1, loader.getLoadingTileCount());
+        assertTrue(started.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        loader.changed(null, 25.03, TILE_EDGE + 0.01, 25.04, TILE_EDGE + 0.02, 10, false);
+
+        runUntil(() -> !published.isEmpty());
+
+        release.countDown();
+
+        runUntil(interrupted::get);
+
+        Thread.sleep(50);
+        Looper.getMainLooper().runPending();
+
+        assertEquals(1, published.size());
+        assertEquals(1, published.get(0).size());
+        assertTrue(published.get(0).get(0).toString().startsWith("10/858/"));
+        assertEquals(0, loader.getLoadingTileCount());
+        assertEquals(1, loader.getCachedTileCount());
+    }
+
+    @Test
+    public void publishesOnceEveryVisibleTileSettles() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        loader = create((zoom, x, y, south, west, north, east) -> {
+            if (x == 858) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException("cancelled");
+                }
+            }
+
+            return tile(zoom, x, y, south, west, north, east);
+        });
+
+        loader.changed(null, 25.03, TILE_EDGE - 0.01, 25.04, TILE_EDGE + 0.01, 10, true);
+
+        Thread.sleep(50);
+        Looper.getMainLooper().runPending();
+
+        assertTrue(published.isEmpty());
+        assertEquals(1, loader.getLoadingTileCount());
+
+        release.countDown();
+
+        runUntil(() -> !published.isEmpty());
+
+        assertEquals(1, published.size());
+        assertEquals(2, published.get(0).size());
+    }
+
+    @Test
+    public void failedTileDoesNotHoldBackOthers() throws Exception {
+        loader = create((zoom, x, y, south, west, north, east) -> {
+            if (x == 858) {
+                throw new IOException("unavailable");
+            }
+
+            return tile(zoom, x, y, south, west, north, east);
+        });
+
+        loader.changed(null, 25.03, TILE_EDGE - 0.01, 25.04, TILE_EDGE + 0.01, 10, true);
+
+        runUntil(() -> !published.isEmpty());
+
+        assertEquals(1, published.get(0).size());
+        assertTrue(published.get(0).get(0).toString().startsWith("10/857/"));
+        assertFalse(loader.getLoadingTileCount() > 0);
+    }
+
+    private TileLoader create(DataSource source) {
+        TileLoader created = new TileLoader(source, allOpts -> {
+            ArrayList<Object> keys = new ArrayList<>();
+
+            for (KeyedMarkerOptions keyedOpts : allOpts) {
+                keys.add(keyedOpts.getKey());
+            }
+
+            published.add(keys);
+        });
+
+        created.setPrefetch(0);
+
+        return created;
+    }
+
+    private static List<KeyedMarkerOptions> tile(int zoom, int x, int y, double south, double west, double north, double east) {
+        LatLng center = new LatLng((south + north) / 2, (west + east) / 2);
+
+        return Collections.singletonList(new KeyedMarkerOptions(zoom + "/" + x + "/" + y, new MarkerOptions().position(center)));
+    }
+
+    private static void runUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while (!condition.getAsBoolean()) {
+            assertTrue("condition not met in time", System.currentTimeMillis() < deadline);
+
+            Looper.getMainLooper().runPending();
+
+            Thread.sleep(1);
+        }
+    }
+}